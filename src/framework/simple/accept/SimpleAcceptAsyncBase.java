@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Base class for a test case executing rows asynchronously, e.g. against an asynchronous client.
+ * 
+ * Framework binds input values of every row to a separate instance of the test class and passes
+ * it to executeAsync(), called on the (initialized) test class instance. Output values are expected
+ * to be set on the row instance by the time returned future completes.
+ * 
+ * Up to simpleaccept.async.inflight.count rows of a file are kept in flight. Rows are still
+ * validated and reported in order of test data file. Row instances are plain data holders,
+ * init() is not called on them.
+ * 
+ * @param <T> the test class itself
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public abstract class SimpleAcceptAsyncBase<T extends SimpleAcceptAsyncBase<T>> extends SimpleAcceptBase {
+	
+	/**
+	 * Framework calls this method for testing a row.
+	 * Should not block, exceptional completion of the future fails the test.
+	 * 
+	 * @param row instance with input values set
+	 * @return future completing once output values of the row are set
+	 * @throws Exception
+	 */
+	public abstract CompletableFuture<?> executeAsync(T row) throws Exception;
+	
+	/**
+	 * Executes this instance as a row and waits for it.
+	 * 
+	 * @see framework.simple.accept.SimpleAcceptBase#execute()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean execute() throws Exception {
+		executeAsync((T) this).get();
+		return true;
+	}
+}
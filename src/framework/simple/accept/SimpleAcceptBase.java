@@ -16,6 +16,7 @@
 package framework.simple.accept;
 
 import java.text.SimpleDateFormat;
+import java.util.List;
 
 /**
  * Copyright 2016, Kashyap Deshpande.
@@ -23,6 +24,12 @@ import java.text.SimpleDateFormat;
  * Base class for a test case.
  * All test cases should extend this class.
  * 
+ * Apart from execute(), framework calls optional life cycle methods, so that expensive set up
+ * (opening embedded DB, loading a model etc.) is done once per scope rather than for every row.
+ * 1. init() / destroy() - once per instance (see simpleaccept.instance.pooling)
+ * 2. beforeFile() / afterFile() - once per test data file
+ * 3. beforeGroup() / afterGroup() - once per TestParams group
+ * 
  * @author kashyaprdeshpande@gmail.com
  *
  */
@@ -43,4 +50,60 @@ public abstract class SimpleAcceptBase {
 	 * @return SimpleDateFormat
 	 */
 	public abstract SimpleDateFormat getDateFormatter();
+	
+	/**
+	 * Called once after instance is created, before it is used for any test data file.
+	 * With instance pooling 'thread', this is per worker thread initialization.
+	 * 
+	 * @throws Exception
+	 */
+	public void init() throws Exception {
+	}
+	
+	/**
+	 * Called once instance is no more used.
+	 * With instance pooling 'thread' / 'shared', this is at the end of testing.
+	 * 
+	 * @throws Exception
+	 */
+	public void destroy() throws Exception {
+	}
+	
+	/**
+	 * Called before first row of given test data file is executed.
+	 * 
+	 * @param testDataFileName
+	 * @throws Exception
+	 */
+	public void beforeFile(final String testDataFileName) throws Exception {
+	}
+	
+	/**
+	 * Called after last row of given test data file is executed, even if the file has failed.
+	 * 
+	 * @param testDataFileName
+	 * @throws Exception
+	 */
+	public void afterFile(final String testDataFileName) throws Exception {
+	}
+	
+	/**
+	 * Called before first row of a TestParams group is executed.
+	 * 
+	 * @param inputParams
+	 * @param outputParams
+	 * @throws Exception
+	 */
+	public void beforeGroup(final List<String> inputParams, final List<String> outputParams) throws Exception {
+	}
+	
+	/**
+	 * Called after last row of a TestParams group is executed, even if the group has failed.
+	 * 
+	 * @param inputParams
+	 * @param outputParams
+	 * @throws Exception
+	 */
+	public void afterGroup(final List<String> inputParams, final List<String> outputParams) throws Exception {
+	}
 }
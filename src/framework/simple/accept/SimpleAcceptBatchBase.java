@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Base class for a test case executing a block of rows in one call, e.g. one bulk call to the system under test.
+ * 
+ * Framework binds input values of every row to a separate instance of the test class and passes
+ * the block of such rows to executeBatch(), called on the (initialized) test class instance.
+ * executeBatch() is expected to set output values on each row instance, which are then validated
+ * and reported row by row. Row instances are plain data holders, init() is not called on them.
+ * 
+ * Block size is simpleaccept.batch.size, can be changed for following TestParams groups
+ * by BatchSize line in test data file.
+ * 
+ * @param <T> the test class itself
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public abstract class SimpleAcceptBatchBase<T extends SimpleAcceptBatchBase<T>> extends SimpleAcceptBase {
+	
+	/**
+	 * Framework calls this method for testing a block of rows.
+	 * 
+	 * @param rows instances with input values set, in order of test data file
+	 * @throws Exception
+	 */
+	public abstract void executeBatch(List<T> rows) throws Exception;
+	
+	/**
+	 * Executes this instance as a block of single row.
+	 * 
+	 * @see framework.simple.accept.SimpleAcceptBase#execute()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean execute() throws Exception {
+		executeBatch(Collections.singletonList((T) this));
+		return true;
+	}
+}
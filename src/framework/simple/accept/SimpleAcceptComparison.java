@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * A/B differential testing : every test row is executed by test class (A) and, on the same bound input values,
+ * by the test class it is compared with (B), given by CompareWith line of test data file
+ * or configured by simpleaccept.compare.<test-class-name>=<compared-test-class-name>.
+ * 
+ * Rows are verified against expected values by A. Output values of B differing from the ones of A fail the row.
+ * Reported per row (report columns Compared, MillisA, MillisB and Speedup, i.e. time of A / time of B)
+ * and per pair of test classes (ReadMe.txt). Batch and async test classes are executed row by row while being compared,
+ * so that both test classes execute the same row on the same input values.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptComparison {
+	
+	static final String COMPARE_WITH = "CompareWith";
+	static final String COLUMNS = "Compared,MillisA,MillisB,Speedup";
+	static final String SAME = "Same";
+	static final String DIFFERS = "Differs.";
+	
+	/**
+	 * @param config
+	 * @param testClassName
+	 * @return name of the test class given test class is compared with, as configured; null if it is not compared
+	 */
+	static String getConfiguredClassName(final SimpleAcceptConfig config, final String testClassName) {
+		final String className = config.getProperty(SimpleAcceptUtility.COMPARE_PREFIX + testClassName, false);
+		return (className != null && !className.trim().isEmpty()) ? className.trim() : null;
+	}
+	
+	/**
+	 * Returns comparison of given row as report columns.
+	 * 
+	 * @param row
+	 * @return columns (refer COLUMNS)
+	 */
+	static String getColumns(final SimpleAcceptRow row) {
+		return row.compareResult + "," + TimeUnit.NANOSECONDS.toMillis(row.elapsedNanos) + ","
+				+ ((row.compareElapsedNanos >= 0) ? Long.toString(TimeUnit.NANOSECONDS.toMillis(row.compareElapsedNanos)) : "-") + ","
+				+ getSpeedup(row.elapsedNanos, row.compareElapsedNanos);
+	}
+	
+	private static String getSpeedup(final long nanosA, final long nanosB) {
+		return (nanosA > 0 && nanosB > 0) ? String.format(Locale.ROOT, "%.2fx", (double) nanosA / nanosB) : "-";
+	}
+	
+	/**
+	 * Comparison of several rows of a pair of test classes, updated without locking.
+	 */
+	static class Summary {
+		
+		private final LongAdder rows = new LongAdder();
+		private final LongAdder mismatches = new LongAdder();
+		private final LongAdder nanosA = new LongAdder();
+		private final LongAdder nanosB = new LongAdder();
+		
+		/**
+		 * Adds comparison of given row, if it was compared.
+		 * 
+		 * @param row
+		 */
+		void add(final SimpleAcceptRow row) {
+			if (row.compareResult == null)
+				return;
+			rows.increment();
+			if (!SAME.equals(row.compareResult))
+				mismatches.increment();
+			nanosA.add(row.elapsedNanos);
+			nanosB.add(Math.max(0, row.compareElapsedNanos));
+		}
+		
+		@Override
+		public String toString() {
+			return rows.sum() + " rows; " + mismatches.sum() + " mismatches; A " + TimeUnit.NANOSECONDS.toMillis(nanosA.sum()) + " ms; B "
+					+ TimeUnit.NANOSECONDS.toMillis(nanosB.sum()) + " ms; speedup " + getSpeedup(nanosA.sum(), nanosB.sum());
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Concurrency limits of a test class, e.g. for test classes sharing an embedded database :
+ * 	@SimpleAcceptConcurrency(resources = "embedded-db")
+ * 
+ * Test data files of the class are started only while...
+ * 1. less than limit files of the same class are being tested (0 means no limit)
+ * 2. every named resource used by the class has capacity left. Named resource is exclusive (one file at a time),
+ * 	unless its limit is configured by simpleaccept.concurrency.limit.<resource-name>
+ * Other test data files keep the workers busy meanwhile. Limits can be configured without annotation as well (refer SimpleAccept.properties).
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SimpleAcceptConcurrency {
+	
+	/**
+	 * @return maximum number of test data files of the class tested at the same time, 0 means no limit
+	 */
+	int limit() default 0;
+	
+	/**
+	 * @return names of resources used by the class
+	 */
+	String[] resources() default {};
+}
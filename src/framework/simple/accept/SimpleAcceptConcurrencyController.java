@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Adaptive concurrency (simpleaccept.concurrent.processing.count=adaptive) : number of workers is changed during the run,
+ * within configured bounds, by measured throughput (rows per second), CPU utilization of the JVM and average row latency.
+ * 
+ * Every interval, controller (additive increase / multiplicative decrease)...
+ * 1. decreases workers by a quarter, if CPU is saturated or rows got much slower without any gain in throughput
+ * 2. takes back last added worker (and waits few intervals), if it did not improve throughput
+ * 3. adds a worker, if test data files are waiting for one (and not for their resources, refer SimpleAcceptScheduler)
+ * Interval without any executed row gives no signal, nothing is changed then.
+ * 
+ * Workers added by watchdog for abandoned ones are kept, as worker pool is always resized relatively.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptConcurrencyController {
+	
+	static final String ADAPTIVE = "adaptive";
+	
+	private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+	/* Throughput has to grow at least by this ratio, for added worker to be kept. */
+	private static final double MIN_GAIN = 0.05;
+	private static final double DECREASE_FACTOR = 0.75;
+	private static final double CPU_SATURATED = 0.95;
+	/* Row latency above this multiple of the lowest one seen means contention. */
+	private static final double LATENCY_LIMIT = 2.0;
+	private static final int HOLD_INTERVALS = 3;
+	
+	private final ThreadPoolExecutor workerPool;
+	private final SimpleAcceptScheduler scheduler;
+	private final SimpleAcceptResultBean bean;
+	private final SimpleAcceptLog log;
+	private final int min;
+	private final int max;
+	private final ScheduledExecutorService timer;
+	private final com.sun.management.OperatingSystemMXBean osBean;
+	private final int processors = Runtime.getRuntime().availableProcessors();
+	
+	/* Used by scheduler thread only. */
+	private int workers;
+	private long lastNanos = System.nanoTime();
+	private long lastRows = 0;
+	private long lastRowNanos = 0;
+	private long lastCpuNanos;
+	private double lastThroughput = 0;
+	private double lowestLatencyNanos = Double.MAX_VALUE;
+	private boolean isIncreased = false;
+	private int hold = 0;
+	
+	/**
+	 * Starts controlling given worker pool.
+	 * 
+	 * @param workerPool
+	 * @param scheduler scheduler handing files over to the pool
+	 * @param bean result bean of the run, source of executed rows
+	 * @param log
+	 * @param min minimum number of workers
+	 * @param max maximum number of workers
+	 * @param intervalMillis
+	 */
+	SimpleAcceptConcurrencyController(final ThreadPoolExecutor workerPool, final SimpleAcceptScheduler scheduler, final SimpleAcceptResultBean bean,
+			final SimpleAcceptLog log, final int min, final int max, final long intervalMillis) {
+		this.workerPool = workerPool;
+		this.scheduler = scheduler;
+		this.bean = bean;
+		this.log = log;
+		this.min = min;
+		this.max = max;
+		this.workers = workerPool.getCorePoolSize();
+		final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		this.osBean = (os instanceof com.sun.management.OperatingSystemMXBean) ? (com.sun.management.OperatingSystemMXBean) os : null;
+		this.lastCpuNanos = (osBean != null) ? osBean.getProcessCpuTime() : -1;
+		this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "SimpleAccept-Concurrency");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		timer.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					adjust();
+				} catch (final RuntimeException e) {
+					SimpleAcceptConcurrencyController.this.log.warning(null, "Exception occurred while adjusting concurrency.", e);
+				}
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param config
+	 * @return true if number of workers is adaptive
+	 */
+	static boolean isAdaptive(final SimpleAcceptConfig config) {
+		return ADAPTIVE.equalsIgnoreCase(config.getProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_COUNT, true).trim());
+	}
+	
+	/**
+	 * Returns number of workers to start the run with. Adaptive run starts with number of processors, within bounds.
+	 * 
+	 * @param config
+	 * @return number of workers
+	 */
+	static int getInitialWorkerCount(final SimpleAcceptConfig config) {
+		if (!isAdaptive(config))
+			return config.getIntProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_COUNT, 1);
+		return Math.max(getMin(config), Math.min(getMax(config), Runtime.getRuntime().availableProcessors()));
+	}
+	
+	/**
+	 * Starts controller for given run, if configured.
+	 * 
+	 * @param config
+	 * @param workerPool
+	 * @param scheduler
+	 * @param bean
+	 * @param log
+	 * @return controller, null if number of workers is fixed
+	 */
+	static SimpleAcceptConcurrencyController start(final SimpleAcceptConfig config, final ThreadPoolExecutor workerPool,
+			final SimpleAcceptScheduler scheduler, final SimpleAcceptResultBean bean, final SimpleAcceptLog log) {
+		if (!isAdaptive(config))
+			return null;
+		return new SimpleAcceptConcurrencyController(workerPool, scheduler, bean, log, getMin(config), getMax(config),
+				config.getIntProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_INTERVAL_MILLIS, (int) DEFAULT_INTERVAL_MILLIS));
+	}
+	
+	private static int getMin(final SimpleAcceptConfig config) {
+		return Math.max(1, config.getIntProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_MIN, 1));
+	}
+	
+	private static int getMax(final SimpleAcceptConfig config) {
+		return Math.max(getMin(config), config.getIntProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_MAX,
+				4 * Runtime.getRuntime().availableProcessors()));
+	}
+	
+	/**
+	 * Stops the controller and logs number of workers it has ended with.
+	 */
+	void stop() {
+		timer.shutdownNow();
+		log.log(Level.INFO, null, "Adaptive concurrency ended with " + workers + " workers.", null);
+	}
+	
+	/**
+	 * Measures last interval and changes number of workers, if needed.
+	 */
+	private void adjust() {
+		final long nowNanos = System.nanoTime();
+		final long rows = bean.executedRows.sum();
+		final long rowNanos = bean.executedRowNanos.sum();
+		final long cpuNanos = (osBean != null) ? osBean.getProcessCpuTime() : -1;
+		final long intervalNanos = nowNanos - lastNanos;
+		final long intervalRows = rows - lastRows;
+		final double throughput = intervalRows * 1e9 / intervalNanos;
+		final double latencyNanos = (intervalRows > 0) ? (double) (rowNanos - lastRowNanos) / intervalRows : 0;
+		/* Share of all processors used by the JVM, -1 if not known. */
+		final double cpu = (cpuNanos >= 0 && lastCpuNanos >= 0) ? (double) (cpuNanos - lastCpuNanos) / (intervalNanos * processors) : -1;
+		lastNanos = nowNanos;
+		lastRows = rows;
+		lastRowNanos = rowNanos;
+		lastCpuNanos = cpuNanos;
+		if (intervalRows == 0)
+			return;
+		lowestLatencyNanos = Math.min(lowestLatencyNanos, latencyNanos);
+		
+		int target = workers;
+		String reason = null;
+		if (cpu >= CPU_SATURATED || (latencyNanos > LATENCY_LIMIT * lowestLatencyNanos && throughput <= lastThroughput)) {
+			target = Math.max(min, (int) (workers * DECREASE_FACTOR));
+			reason = (cpu >= CPU_SATURATED) ? "CPU is saturated" : "rows got slower without gain in throughput";
+			hold = HOLD_INTERVALS;
+		} else if (isIncreased && throughput < lastThroughput * (1 + MIN_GAIN)) {
+			target = Math.max(min, workers - 1);
+			reason = "added worker did not improve throughput";
+			hold = HOLD_INTERVALS;
+		} else if (hold > 0) {
+			hold--;
+		} else if (workers < max && scheduler.hasDispatchableFiles()) {
+			target = workers + 1;
+			reason = "test data files are waiting";
+		}
+		isIncreased = target > workers;
+		
+		if (target != workers) {
+			log.log(Level.INFO, null, String.format(Locale.ENGLISH, "Concurrency %d -> %d, %s : throughput %.1f rows/s, CPU %s, row latency %.1f ms.",
+					workers, target, reason, throughput, (cpu >= 0) ? String.format(Locale.ENGLISH, "%.0f%%", cpu * 100) : "unknown",
+					latencyNanos / 1e6), null);
+			SimpleAcceptUtility.resizeWorkerPool(workerPool, target - workers);
+			workers = target;
+			scheduler.dispatch();
+		}
+		lastThroughput = throughput;
+	}
+}
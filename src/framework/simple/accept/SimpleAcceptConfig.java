@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Immutable configuration of one testing run.
+ * Refer SimpleAccept.properties to learn configurable properties.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public final class SimpleAcceptConfig {
+	
+	static final String CONFIG_FILE_SYSTEM_PROPERTY = "SIMPLE_ACCEPT_CONFIG_FILE";
+	static final String DEFAULT_PROPERTIES_FILE = "SimpleAccept.properties";
+	
+	private final Properties properties = new Properties();
+	
+	/**
+	 * Creates configuration from given properties. Properties are copied, later changes are not considered.
+	 * 
+	 * @param properties
+	 */
+	public SimpleAcceptConfig(final Properties properties) {
+		for (String propertyName : properties.stringPropertyNames())
+			this.properties.setProperty(propertyName, properties.getProperty(propertyName));
+	}
+	
+	/**
+	 * Loads configuration from properties file given by SIMPLE_ACCEPT_CONFIG_FILE system property
+	 * (default SimpleAccept.properties), looked up in classpath.
+	 * 
+	 * @return config
+	 * @throws IOException
+	 */
+	public static SimpleAcceptConfig load() throws IOException {
+		return load(System.getProperty(CONFIG_FILE_SYSTEM_PROPERTY, DEFAULT_PROPERTIES_FILE));
+	}
+	
+	/**
+	 * Loads configuration from given properties file, looked up in classpath.
+	 * 
+	 * @param configFile
+	 * @return config
+	 * @throws IOException
+	 */
+	public static SimpleAcceptConfig load(final String configFile) throws IOException {
+		final InputStream stream = SimpleAcceptConfig.class.getClassLoader().getResourceAsStream(configFile);
+		if (stream == null) {
+			throw new RuntimeException("Invalid config file [" + configFile + "]");
+		}
+		final Properties properties = new Properties();
+		try {
+			properties.load(stream);
+		} finally {
+			stream.close();
+		}
+		return new SimpleAcceptConfig(properties);
+	}
+	
+	/**
+	 * Returns copy of this configuration with given property changed.
+	 * 
+	 * @param propertyName
+	 * @param propertyValue null removes the property
+	 * @return config
+	 */
+	public SimpleAcceptConfig with(final String propertyName, final String propertyValue) {
+		final Properties copy = toProperties();
+		if (propertyValue == null)
+			copy.remove(propertyName);
+		else
+			copy.setProperty(propertyName, propertyValue);
+		return new SimpleAcceptConfig(copy);
+	}
+	
+	/**
+	 * Returns value of given property.
+	 * If property is mandatory and not set, exception is thrown.
+	 * 
+	 * @param propertyName
+	 * @param isMandatory
+	 * @return propertyValue
+	 */
+	public String getProperty(final String propertyName, final boolean isMandatory) {
+		final String propertyValue = properties.getProperty(propertyName);
+		if (isMandatory && (propertyValue == null || propertyValue.trim().isEmpty()))
+			throw new RuntimeException(propertyName + " property is missing. Cannot proceed further.");
+		return propertyValue;
+	}
+	
+	/**
+	 * Returns numeric value of given property.
+	 * If property is not set, given default value is returned.
+	 * 
+	 * @param propertyName
+	 * @param defaultValue
+	 * @return propertyValue
+	 */
+	public int getIntProperty(final String propertyName, final int defaultValue) {
+		final String propertyValue = getProperty(propertyName, false);
+		if (propertyValue == null || propertyValue.trim().isEmpty())
+			return defaultValue;
+		try {
+			return Integer.valueOf(propertyValue.trim());
+		} catch (final NumberFormatException e) {
+			throw new RuntimeException(propertyName + " property should be a number. Value is : " + propertyValue, e);
+		}
+	}
+	
+	/**
+	 * Returns decimal value of given property.
+	 * If property is not set, given default value is returned.
+	 * 
+	 * @param propertyName
+	 * @param defaultValue
+	 * @return propertyValue
+	 */
+	public double getDoubleProperty(final String propertyName, final double defaultValue) {
+		final String propertyValue = getProperty(propertyName, false);
+		if (propertyValue == null || propertyValue.trim().isEmpty())
+			return defaultValue;
+		try {
+			return Double.valueOf(propertyValue.trim());
+		} catch (final NumberFormatException e) {
+			throw new RuntimeException(propertyName + " property should be a number. Value is : " + propertyValue, e);
+		}
+	}
+	
+	/**
+	 * @return copy of all properties
+	 */
+	public Properties toProperties() {
+		final Properties copy = new Properties();
+		for (String propertyName : properties.stringPropertyNames())
+			copy.setProperty(propertyName, properties.getProperty(propertyName));
+		return copy;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Consolidated report of a run (simpleaccept.report.consolidated=true) : one document (SimpleAccept_Report.<type>)
+ * with table of contents and a section per test data file, instead of a report per test data file.
+ * 
+ * Report of every file is written by its worker as a fragment (report without document start / end) into spool directory,
+ * independently of other workers. Once the run is done, the document is written once : table of contents (results are known
+ * by then) followed by the fragments, copied as streams in order of test data files. Memory used does not depend on number
+ * of files or rows.
+ * 
+ * Fragments are kept till the document is written, so that resumed run (refer SimpleAcceptJournal) can merge them again.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptConsolidatedReport {
+	
+	static final String REPORT_NAME = "SimpleAccept.csv";
+	private static final String SPOOL_DIR_NAME = "SimpleAccept_Report.spool";
+	
+	private final SimpleAcceptConfig config;
+	private final File resultDir;
+	private final File spoolDir;
+	/* Test data files (name, report name) in order of the run. */
+	private final List<String> names;
+	private final List<String> reportNames;
+	
+	/**
+	 * @param config
+	 * @param resultDir
+	 * @param testDataFiles files of the run, in order of their sections
+	 * @param shard can be null
+	 * @throws IOException
+	 */
+	SimpleAcceptConsolidatedReport(final SimpleAcceptConfig config, final File resultDir, final List<File> testDataFiles,
+			final SimpleAcceptShard shard) throws IOException {
+		this.config = config;
+		this.resultDir = resultDir;
+		this.spoolDir = new File(resultDir, SPOOL_DIR_NAME);
+		this.names = new ArrayList<String>(testDataFiles.size());
+		this.reportNames = new ArrayList<String>(testDataFiles.size());
+		for (File testDataFile : testDataFiles) {
+			final String reportName = (shard != null) ? shard.getReportName(testDataFile) : testDataFile.getName();
+			names.add(testDataFile.getName());
+			reportNames.add(reportName);
+		}
+		if (!spoolDir.isDirectory() && !spoolDir.mkdir())
+			throw new IOException("Cannot create spool directory " + spoolDir);
+	}
+	
+	/**
+	 * @param config
+	 * @return true if reports of test data files are consolidated into one
+	 */
+	static boolean isEnabled(final SimpleAcceptConfig config) {
+		return Boolean.parseBoolean(config.getProperty(SimpleAcceptUtility.REPORT_CONSOLIDATED, false));
+	}
+	
+	/**
+	 * @param reportName name of test data file as used for its report
+	 * @return file the report of given test data file is written to, as a fragment
+	 */
+	File getFragmentFile(final String reportName) {
+		return getFile(spoolDir, reportName);
+	}
+	
+	private File getFile(final File dir, final String reportName) {
+		return new File(SimpleAcceptUtility.getReportFileName(config, dir.getAbsolutePath(), reportName));
+	}
+	
+	/**
+	 * Writes the document, merging fragments of all files (e.g. skipped ones have none). Called once the run is done.
+	 * 
+	 * @param bean result bean of the run
+	 * @return consolidated report
+	 * @throws IOException
+	 */
+	File finish(final SimpleAcceptResultBean bean) throws IOException {
+		final List<String> results = new ArrayList<String>(names.size());
+		for (String name : names) {
+			final String result = bean.fileResults.get(name);
+			results.add((result != null) ? result : SimpleAcceptRunResult.FILE_SKIPPED);
+		}
+		final File report = getFile(resultDir, REPORT_NAME);
+		final SimpleAcceptWriter writer = SimpleAcceptWriter.getInstace(report);
+		try {
+			writer.writeContents(reportNames, results);
+			for (int i=0; i<reportNames.size(); i++)
+				merge(writer, i);
+		} finally {
+			writer.close();
+		}
+		
+		final File[] fragments = spoolDir.listFiles();
+		for (int i=0; fragments != null && i<fragments.length; i++)
+			fragments[i].delete();
+		spoolDir.delete();
+		return report;
+	}
+	
+	private void merge(final SimpleAcceptWriter writer, final int index) throws IOException {
+		final File fragment = getFragmentFile(reportNames.get(index));
+		if (!fragment.isFile())
+			return;
+		writer.writeSectionHeading(reportNames.get(index));
+		writer.writeFragment(fragment);
+		writer.writeSectionEnd(reportNames.get(index));
+	}
+}
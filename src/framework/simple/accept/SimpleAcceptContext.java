@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * State of one testing run, shared by all its workers.
+ * Nothing is kept in static state, so that several runs can execute in the same JVM.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptContext {
+	
+	final SimpleAcceptConfig config;
+	final File resultDir;
+	final SimpleAcceptResultBean bean;
+	/* Can be null, no deadlines are enforced then. */
+	final SimpleAcceptWatchdog watchdog;
+	final SimpleAcceptInstancePool instancePool;
+	/* Can be null, execution times are not tracked then. */
+	final SimpleAcceptPerfHistory perfHistory;
+	/* Can be null, if testing is not sharded. */
+	final SimpleAcceptShard shard;
+	final SimpleAcceptLog log;
+	/* Result directory of previous run, whose passed rows are carried forward. Null if all rows are executed. */
+	final File rerunDir;
+	/* Checkpoint journal of the run, can be null (e.g. outside of a run). */
+	final SimpleAcceptJournal journal;
+	/* Consolidated report of the run, null if every test data file has its own report. */
+	final SimpleAcceptConsolidatedReport report;
+	/* Sampling profiler of the run, null if workers are not sampled. */
+	final SimpleAcceptProfiler profiler;
+	
+	SimpleAcceptContext(final SimpleAcceptConfig config, final File resultDir, final SimpleAcceptResultBean bean,
+			final SimpleAcceptWatchdog watchdog, final SimpleAcceptInstancePool instancePool, final SimpleAcceptPerfHistory perfHistory,
+			final SimpleAcceptShard shard, final SimpleAcceptLog log, final File rerunDir,
+			final SimpleAcceptJournal journal, final SimpleAcceptConsolidatedReport report, final SimpleAcceptProfiler profiler) {
+		this.config = config;
+		this.resultDir = resultDir;
+		this.bean = bean;
+		this.watchdog = watchdog;
+		this.instancePool = instancePool;
+		this.perfHistory = perfHistory;
+		this.shard = shard;
+		this.log = log;
+		this.rerunDir = rerunDir;
+		this.journal = journal;
+		this.report = report;
+		this.profiler = profiler;
+	}
+	
+	/**
+	 * @param testDataFile
+	 * @return name of given test data file as used for its report and row outcomes
+	 */
+	String getReportName(final File testDataFile) {
+		return (shard != null) ? shard.getReportName(testDataFile) : testDataFile.getName();
+	}
+	
+	/**
+	 * Creates context for processing files outside of a run, configured by default properties file.
+	 * No deadlines are enforced, new test class instance is created for every file and default log is used.
+	 * 
+	 * @param resultDir
+	 * @param bean can be null
+	 * @return context
+	 */
+	static SimpleAcceptContext standalone(final File resultDir, final SimpleAcceptResultBean bean) {
+		try {
+			return new SimpleAcceptContext(SimpleAcceptConfig.load(), resultDir, bean, null, null, null, null, SimpleAcceptLog.getDefault(), null, null, null, null);
+		} catch (final IOException e) {
+			throw new RuntimeException("Exception occurred while loading config.", e);
+		}
+	}
+}
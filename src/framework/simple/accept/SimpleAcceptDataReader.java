@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Source of lines of one test data file, read by the processor one by one.
+ * Lines come either from CSV file (refer SimpleAcceptRowGenerator.Reader) or from its compiled fixture (refer SimpleAcceptFixture).
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+interface SimpleAcceptDataReader extends Closeable {
+	
+	/**
+	 * @return next line of test data file, null at the end
+	 * @throws IOException
+	 */
+	String readLine() throws IOException;
+	
+	/**
+	 * @return true if last line read is a generated test row
+	 */
+	boolean isGenerated();
+	
+	/**
+	 * @return values (CSV cells) of last line read, null if the line is to be split by the processor
+	 */
+	String[] getValues();
+	
+	/**
+	 * @return cells of last line read as compiled by fixture, with input values converted to the types of test class fields,
+	 * 	null if not compiled
+	 */
+	SimpleAcceptFixture.Cells getCells();
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Testing engine, for embedding the framework (build servers, IDE plugins).
+ * 
+ * Engine keeps no state between runs, so one instance can be reused for many runs in a warm JVM,
+ * including concurrent ones. Each run gets its own result directory, workers, watchdog and test class instances.
+ * 
+ * <pre>
+ * final SimpleAcceptRunResult result = new SimpleAcceptEngine().run(SimpleAcceptConfig.load());
+ * </pre>
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptEngine {
+	
+	/* Interval at which waiting for completion checks for cancellation (fail-fast). */
+	private static final long CANCEL_POLL_MILLIS = 100;
+	/* Time given to in-flight tests to stop cooperatively once testing is cancelled. */
+	private static final long CANCEL_GRACE_SECONDS = 30;
+	/* Default time to wait for all tests to finish, no limit (hung tests are stopped by row / file deadlines). */
+	private static final int DEFAULT_RUN_TIMEOUT_MINUTES = 0;
+	/* Defaults for flagging execution time regressions. */
+	private static final double DEFAULT_PERF_REGRESSION_SIGMA = 3;
+	private static final int DEFAULT_PERF_REGRESSION_MIN_MILLIS = 5;
+	
+	static final String SUMMARY_FILE_NAME = "ReadMe.txt";
+	static final String SUMMARY_PROPERTIES_FILE_NAME = "summary.properties";
+	/* Keys of summary.properties. */
+	static final String SUMMARY_SHARD = "shard";
+	static final String SUMMARY_SAMPLE = "sample";
+	static final String SUMMARY_CANCEL_REASON = "cancel.reason";
+	static final String SUMMARY_FILE = "file.";
+	static final String SUMMARY_FAILED = "failed.";
+	static final String SUMMARY_PERF_REGRESSION = "perf.regression.";
+	
+	private static final AtomicInteger runCount = new AtomicInteger(0);
+	
+	/**
+	 * Executes actual testing by delegating work to appropriate worker.
+	 * 
+	 * Also, generates overall testing report containing...
+	 * 1. Number of total / executed / passed / failed tests
+	 * 2. Test data file names for which tests have failed
+	 * 
+	 * @param config
+	 * @return result of the run
+	 */
+	public SimpleAcceptRunResult run(final SimpleAcceptConfig config) {
+		
+		final long runStartNanos = System.nanoTime();
+		final File dir = new File(config.getProperty(SimpleAcceptUtility.TEST_DATA_FOLDER, true));
+		/* If no files specified, all files under given TEST_DATA_FODLER are considered. */
+		final String filesToProcess = config.getProperty(SimpleAcceptUtility.TEST_DATA_FILES, false);
+		final List<File> discoveredFiles = SimpleAcceptUtility.getFiles(dir, filesToProcess);
+		/* Sharded run tests only its slice of discovered files. */
+		final SimpleAcceptShard shard = SimpleAcceptShard.create(config);
+		final SimpleAcceptPerfHistory perfHistory = createPerfHistory(config, dir);
+		List<File> testDataFiles = discoveredFiles;
+		if (shard != null) {
+			try {
+				testDataFiles = shard.select(discoveredFiles, (perfHistory != null) ? perfHistory : new SimpleAcceptPerfHistory(dir, 1, 0, 0));
+			} catch (final IOException e) {
+				throw new RuntimeException("Exception occurred while selecting test data files of shard " + shard, e);
+			}
+			SimpleAcceptUtility.getLogger().info("Testing shard " + shard + " : " + testDataFiles.size() + " of " + discoveredFiles.size() + " test data files.");
+		}
+		/* Sampling is validated once here, it is applied by every processor. */
+		final SimpleAcceptSampler sampler = SimpleAcceptSampler.create(config);
+		if (sampler != null)
+			SimpleAcceptUtility.getLogger().info("Testing sample of " + sampler + ".");
+		/* If no retention count specified, no clean-up is done. */
+		final String testResultRetCount = config.getProperty(SimpleAcceptUtility.TEST_RESULTS_RET_COUNT, false);
+		final long discoveredNanos = System.nanoTime();
+		
+		boolean areAllTestsPassed = true;
+		
+		/* Shard without files still reports its (empty) result, for merging of shard results. */
+		if (discoveredFiles.isEmpty() || (testDataFiles.isEmpty() && shard == null)) {
+			SimpleAcceptUtility.cleanupHistory(testResultRetCount, dir, null, null);
+			return new SimpleAcceptRunResult(null, testDataFiles, new SimpleAcceptResultBean(0), true, null);
+		}
+		
+		/* Resumed run finishes testing in result directory of the stopped run. */
+		final File resumeDir = SimpleAcceptJournal.getResumeDir(config, dir);
+		final File resultDir = (resumeDir != null) ? resumeDir : createResultDir(dir);
+		SimpleAcceptJournal.Recovery recovery = null;
+		if (resumeDir != null) {
+			try {
+				recovery = SimpleAcceptJournal.recover(resumeDir);
+			} catch (final IOException e) {
+				throw new RuntimeException("Exception occurred while reading journal of " + resumeDir, e);
+			}
+			SimpleAcceptUtility.getLogger().info("Resuming run : " + resumeDir.getAbsolutePath() + ", " + recovery.files.size() + " test data files already completed.");
+		}
+		
+		SimpleAcceptUtility.getLogger().info("Report would be available at : " + resultDir.getAbsolutePath());
+		final SimpleAcceptLog log = SimpleAcceptLog.create(config, resultDir);
+		if (log.getLogFile() != null)
+			SimpleAcceptUtility.getLogger().info("Log would be available at : " + log.getLogFile().getAbsolutePath());
+		
+		/* Everything created for the run from here on is released by it, also if setting it up fails. */
+		try {
+			/* Added try-catch in for loop, to allow other files to process if any one is failed. */
+			final SimpleAcceptResultBean resultBean = new SimpleAcceptResultBean(testDataFiles.size(),
+					config.getIntProperty(SimpleAcceptUtility.FAILURE_BUDGET_ROWS, 0),
+					config.getIntProperty(SimpleAcceptUtility.FAILURE_BUDGET_FILES, 0));
+			final File rerunDir = SimpleAcceptRowOutcomes.isRerun(config) ? SimpleAcceptRowOutcomes.findPreviousResultDir(dir, resultDir) : null;
+			if (rerunDir != null)
+				SimpleAcceptUtility.getLogger().info("Only rows not passed in previous run are executed, previous run : " + rerunDir.getAbsolutePath());
+			else if (SimpleAcceptRowOutcomes.isRerun(config))
+				log.warning(null, "No previous run with row outcomes found (refer " + SimpleAcceptUtility.JOURNAL + "), all rows are executed.", null);
+			ThreadPoolExecutor executor = null;
+			SimpleAcceptWatchdog watchdog = null;
+			SimpleAcceptInstancePool instancePool = null;
+			SimpleAcceptJournal journal = null;
+			SimpleAcceptConsolidatedReport report = null;
+			SimpleAcceptProfiler profiler = null;
+			SimpleAcceptProgressServer progressServer = null;
+			SimpleAcceptConcurrencyController concurrencyController = null;
+			long submittedNanos = 0;
+			/* Executor will wait till all the submitted jobs are finished, or till testing is cancelled / timed out. */
+			final int runTimeoutMinutes = config.getIntProperty(SimpleAcceptUtility.RUN_TIMEOUT_MINUTES, DEFAULT_RUN_TIMEOUT_MINUTES);
+			try {
+				executor = createWorkerPool(SimpleAcceptConcurrencyController.getInitialWorkerCount(config));
+				/* Watchdog (and its thread) is needed only if deadlines are configured. */
+				watchdog = (config.getIntProperty(SimpleAcceptUtility.ROW_TIMEOUT_MILLIS, 0) > 0
+						|| config.getIntProperty(SimpleAcceptUtility.FILE_TIMEOUT_MILLIS, 0) > 0) ? new SimpleAcceptWatchdog(executor) : null;
+				instancePool = new SimpleAcceptInstancePool(config.getProperty(SimpleAcceptUtility.INSTANCE_POOLING, false), log);
+				try {
+					/* Row outcomes and journal cost a write per row, they are kept only if asked for. */
+					journal = SimpleAcceptJournal.isEnabled(config) ? new SimpleAcceptJournal(resultDir, SimpleAcceptJournal.getSyncMillis(config)) : null;
+					report = SimpleAcceptConsolidatedReport.isEnabled(config)
+							? new SimpleAcceptConsolidatedReport(config, resultDir, testDataFiles, shard) : null;
+				} catch (final IOException e) {
+					throw new RuntimeException("Exception occurred while opening journal / report in " + resultDir, e);
+				}
+				profiler = SimpleAcceptProfiler.start(config, log);
+				final SimpleAcceptContext context = new SimpleAcceptContext(config, resultDir, resultBean, watchdog, instancePool, perfHistory, shard, log,
+						rerunDir, journal, report, profiler);
+				progressServer = SimpleAcceptProgressServer.start(context);
+				final SimpleAcceptScheduler scheduler = new SimpleAcceptScheduler(config, executor, resultBean, log);
+				concurrencyController = SimpleAcceptConcurrencyController.start(config, executor, scheduler, resultBean, log);
+				
+				if (recovery != null)
+					resultBean.perfRegressions.addAll(recovery.perfRegressions);
+				for (File testDataFile : testDataFiles) {
+					/* Completed file of resumed run is not tested again. */
+					if (recovery != null && recovery.files.containsKey(testDataFile.getName())) {
+						recovery.files.get(testDataFile.getName()).restore(resultBean);
+						continue;
+					}
+					try {
+						SimpleAcceptUtility.getLogger().info("Executing : " + testDataFile);
+						final SimpleAcceptExecutable cmd = new SimpleAcceptExecutable(testDataFile, context);
+						scheduler.submit(testDataFile, cmd);
+					} catch (final Exception e) {
+						log.severe(testDataFile.getName(), "Exception occurred while submitting test data file.", e);
+						areAllTestsPassed = false;
+						resultBean.recordFailedFile(testDataFile.getName());
+						resultBean.terminationLatch.countDown();
+					}
+				}
+				
+				/* Dependencies between files are resolved once all of them are submitted. */
+				scheduler.start();
+				submittedNanos = System.nanoTime();
+				
+				/* History is cleaned up while first files are being tested, it is not needed for testing. */
+				SimpleAcceptUtility.cleanupHistory(testResultRetCount, dir, resultDir, rerunDir);
+				
+				final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(runTimeoutMinutes);
+				while (!resultBean.terminationLatch.await(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					/* Workers added meanwhile (watchdog / adaptive concurrency) are given waiting files. */
+					scheduler.dispatch();
+					if (runTimeoutMinutes > 0 && System.nanoTime() > deadline)
+						resultBean.cancel("Testing did not finish in " + runTimeoutMinutes + " minutes.");
+					if (resultBean.isCancelled()) {
+						/* Queued files are never started, in-flight ones are interrupted and stop at next row. */
+						final List<Runnable> notStarted = executor.shutdownNow();
+						resultBean.skippedTests.addAndGet(notStarted.size() + scheduler.cancel());
+						executor.awaitTermination(CANCEL_GRACE_SECONDS, TimeUnit.SECONDS);
+						break;
+					}
+				}
+				executor.shutdown();
+			} catch (final InterruptedException e) {
+				/* Caller has given up on this run, stop its workers and keep the interrupt for the caller. */
+				resultBean.cancel("Testing was interrupted.");
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			} finally {
+				/* Workers are still running only if setting up the run has failed. */
+				if (executor != null && !executor.isShutdown())
+					executor.shutdownNow();
+				if (watchdog != null)
+					watchdog.shutdown();
+				if (progressServer != null)
+					progressServer.stop();
+				if (concurrencyController != null)
+					concurrencyController.stop();
+				if (profiler != null)
+					profiler.stop(resultDir);
+				if (instancePool != null)
+					instancePool.destroyAll();
+				try {
+					if (journal != null)
+						journal.close();
+				} catch (final IOException e) {
+					log.warning(null, "Exception occurred while closing journal.", e);
+				}
+				if (report != null) {
+					try {
+						SimpleAcceptUtility.getLogger().info("Consolidated report : " + report.finish(resultBean).getAbsolutePath());
+					} catch (final IOException e) {
+						log.severe(null, "Exception occurred while writing consolidated report.", e);
+					}
+				}
+			}
+			
+			/* Cancelled run is not representative for execution time history. */
+			if (perfHistory != null && !resultBean.isCancelled()) {
+				try {
+					perfHistory.save();
+				} catch (final IOException e) {
+					log.warning(null, "Exception occurred while saving execution time history.", e);
+				}
+			}
+			
+			if (Boolean.parseBoolean(config.getProperty(SimpleAcceptUtility.STARTUP_TIMING, false)))
+				logStartupTiming(runStartNanos, discoveredNanos, submittedNanos, resultBean.firstFileStartNanos.get());
+			
+			/* Marking overall status as failed if any one of the test case if failed, or if testing was cancelled. */
+			areAllTestsPassed = areAllTestsPassed && resultBean.failedTests.intValue() == 0 && !resultBean.isCancelled()
+					&& resultBean.passedTests.intValue() == testDataFiles.size();
+			final SimpleAcceptRunResult result = new SimpleAcceptRunResult(resultDir, testDataFiles, resultBean, areAllTestsPassed,
+					(shard != null) ? shard.toString() : null);
+			writeSummary(resultDir, result);
+			return result;
+		} finally {
+			log.close();
+		}
+	}
+	
+	/**
+	 * Creates execution time history of given test data folder, if configured.
+	 * 
+	 * @param config
+	 * @param dataFolder
+	 * @return history, null if execution times are not tracked
+	 */
+	private SimpleAcceptPerfHistory createPerfHistory(final SimpleAcceptConfig config, final File dataFolder) {
+		final int size = config.getIntProperty(SimpleAcceptUtility.PERF_HISTORY_SIZE, 0);
+		if (size <= 0)
+			return null;
+		/* Sample count is stored in one byte. */
+		return new SimpleAcceptPerfHistory(dataFolder, Math.min(size, 255),
+				config.getDoubleProperty(SimpleAcceptUtility.PERF_REGRESSION_SIGMA, DEFAULT_PERF_REGRESSION_SIGMA),
+				config.getIntProperty(SimpleAcceptUtility.PERF_REGRESSION_MIN_MILLIS, DEFAULT_PERF_REGRESSION_MIN_MILLIS));
+	}
+	
+	/**
+	 * Logs how long it took to get to testing : JVM start up and configuration (till run started),
+	 * test data file discovery, run set up (workers, submission of files) and start of first file.
+	 * 
+	 * @param runStartNanos
+	 * @param discoveredNanos
+	 * @param submittedNanos
+	 * @param firstFileStartNanos 0 if no file was started
+	 */
+	private void logStartupTiming(final long runStartNanos, final long discoveredNanos, final long submittedNanos, final long firstFileStartNanos) {
+		/* Loaded only when asked for, management classes are not needed otherwise. */
+		final long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime()
+				- TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStartNanos);
+		SimpleAcceptUtility.getLogger().info("Start up timing : JVM start up and configuration " + jvmUptimeMillis + " ms"
+				+ ", test data file discovery " + TimeUnit.NANOSECONDS.toMillis(discoveredNanos - runStartNanos) + " ms"
+				+ ", run set up " + TimeUnit.NANOSECONDS.toMillis(submittedNanos - discoveredNanos) + " ms"
+				+ ", first file started after " + ((firstFileStartNanos == 0) ? "-"
+						: TimeUnit.NANOSECONDS.toMillis(firstFileStartNanos - runStartNanos) + " ms")
+				+ " (from start of run).");
+	}
+	
+	/**
+	 * Writes overall testing report (ReadMe.txt) of the run, and its machine readable form (summary.properties)
+	 * used for merging results of shards.
+	 * 
+	 * @param resultDir
+	 * @param result
+	 */
+	static void writeSummary(final File resultDir, final SimpleAcceptRunResult result) {
+		SimpleAcceptWriter testingReport = null;
+		try {
+			testingReport = SimpleAcceptWriter.getInstace(new File(resultDir, SUMMARY_FILE_NAME));
+			testingReport.write("Total number of tests available : " + result.getTotalTests());
+			testingReport.write("Total number of tests executed : " + result.getExecutedTests());
+			testingReport.write("Total number of tests passed : " + result.getPassedTests());
+			testingReport.write("Total number of tests failed : " + result.getFailedTests());
+			if (result.getCancelReason() != null)
+				testingReport.write("Total number of tests cancelled : " + result.getCancelledTestFiles().size());
+			/* Files are skipped if testing is cancelled, or if files they depend on have not passed. */
+			if (result.getCancelReason() != null || result.getSkippedTests() > 0)
+				testingReport.write("Total number of tests skipped : " + result.getSkippedTests());
+			if (result.getCancelReason() != null) {
+				testingReport.write(null);
+				testingReport.write("Testing was cancelled, this is a partial result. " + result.getCancelReason());
+			}
+			if (result.getShard() != null) {
+				testingReport.write(null);
+				testingReport.write("Testing shard : " + result.getShard());
+			}
+			if (result.getSampleCoverage() != null) {
+				testingReport.write(null);
+				testingReport.write("Sampled coverage : " + result.getSampleCoverage());
+			}
+			testingReport.write(null);
+			testingReport.write("Failed tests are...");
+			testingReport.write(null);
+			for (String failedTestFile : result.getFailedTestFiles()) {
+				testingReport.write(failedTestFile);
+			}
+			if (!result.getPerfRegressions().isEmpty()) {
+				testingReport.write(null);
+				testingReport.write("Performance regressions are...");
+				testingReport.write(null);
+				for (String perfRegression : result.getPerfRegressions()) {
+					testingReport.write(perfRegression);
+				}
+			}
+			if (!result.getResourceUsage().isEmpty()) {
+				testingReport.write(null);
+				testingReport.write("Resource usage by test class is...");
+				testingReport.write(null);
+				for (String resourceUsage : result.getResourceUsage()) {
+					testingReport.write(resourceUsage);
+				}
+			}
+			if (!result.getComparisons().isEmpty()) {
+				testingReport.write(null);
+				testingReport.write("A/B comparison by test class is...");
+				testingReport.write(null);
+				for (String comparison : result.getComparisons()) {
+					testingReport.write(comparison);
+				}
+			}
+			if (!result.getCancelledTestFiles().isEmpty()) {
+				testingReport.write(null);
+				testingReport.write("Cancelled tests are...");
+				testingReport.write(null);
+				for (String cancelledTestFile : result.getCancelledTestFiles()) {
+					testingReport.write(cancelledTestFile);
+				}
+			}
+		} catch (final IOException e) {
+			SimpleAcceptLog.getDefault().warning(null, "Exception occurred while writing " + SUMMARY_FILE_NAME, e);
+		} finally {
+			try {
+				if (testingReport != null)
+					testingReport.close();
+			} catch (final IOException e) {
+				SimpleAcceptLog.getDefault().warning(null, "Exception occurred while writing " + SUMMARY_FILE_NAME, e);
+			}
+		}
+		
+		final Properties summary = new Properties();
+		if (result.getShard() != null)
+			summary.setProperty(SUMMARY_SHARD, result.getShard());
+		if (result.getSampleCoverage() != null)
+			summary.setProperty(SUMMARY_SAMPLE, result.getSampleCoverage());
+		if (result.getCancelReason() != null)
+			summary.setProperty(SUMMARY_CANCEL_REASON, result.getCancelReason());
+		for (Map.Entry<String, String> fileResult : result.getFileResults().entrySet())
+			summary.setProperty(SUMMARY_FILE + fileResult.getKey(), fileResult.getValue());
+		for (int i=0; i<result.getFailedTestFiles().size(); i++)
+			summary.setProperty(SUMMARY_FAILED + (i + 1), result.getFailedTestFiles().get(i));
+		for (int i=0; i<result.getPerfRegressions().size(); i++)
+			summary.setProperty(SUMMARY_PERF_REGRESSION + (i + 1), result.getPerfRegressions().get(i));
+		try {
+			final OutputStream out = new FileOutputStream(new File(resultDir, SUMMARY_PROPERTIES_FILE_NAME));
+			try {
+				summary.store(out, "SimpleAccept testing summary, " + (result.isPassed() ? "Passed" : "Failed"));
+			} finally {
+				out.close();
+			}
+		} catch (final IOException e) {
+			SimpleAcceptLog.getDefault().warning(null, "Exception occurred while writing " + SUMMARY_PROPERTIES_FILE_NAME, e);
+		}
+	}
+	
+	/**
+	 * Creates result directory of the run under given test data folder, named by start time.
+	 * Runs started in the same second get a numeric suffix, so that they never share a directory.
+	 * 
+	 * @param testDataDir
+	 * @return resultDir
+	 */
+	private File createResultDir(final File testDataDir) {
+		final String name = new SimpleDateFormat("yyyyMMdd_HH-mm-ss").format(new Date());
+		File resultDir = new File(testDataDir, name);
+		for (int suffix = 2; !resultDir.mkdir(); suffix++) {
+			if (!testDataDir.isDirectory())
+				throw new RuntimeException("Cannot create result directory under " + testDataDir);
+			resultDir = new File(testDataDir, name + "_" + suffix);
+		}
+		return resultDir;
+	}
+	
+	/**
+	 * Creates worker pool for executing test files.
+	 * Workers are daemon threads, so that a hung test cannot keep JVM alive after testing is finished.
+	 * 
+	 * @param size
+	 * @return pool
+	 */
+	private ThreadPoolExecutor createWorkerPool(final int size) {
+		final int run = runCount.incrementAndGet();
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "SimpleAccept-" + run + "-Worker-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -16,6 +16,8 @@
 package framework.simple.accept;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Copyright 2016, Kashyap Deshpande.
@@ -29,31 +31,120 @@ import java.io.File;
 public class SimpleAcceptExecutable implements Runnable {
 
 	private final File testDataFile;
-	private final File resultDir;
+	private final SimpleAcceptContext context;
 	private final SimpleAcceptResultBean bean;
 	
 	public SimpleAcceptExecutable(final File testDataFile, final File resultDir,final SimpleAcceptResultBean bean) {
+		this(testDataFile, SimpleAcceptContext.standalone(resultDir, bean));
+	}
+	
+	/**
+	 * @param testDataFile
+	 * @param context run this file belongs to
+	 */
+	SimpleAcceptExecutable(final File testDataFile, final SimpleAcceptContext context) {
 		this.testDataFile = testDataFile;
-		this.resultDir = resultDir;
-		this.bean = bean;
+		this.context = context;
+		this.bean = context.bean;
 	}
 
 	/**
 	 * Creates Processor instance and delegates work to it.
 	 * Checks the test result and updates...
-	 * 1. passed/failed tests count
+	 * 1. passed/failed/cancelled tests count
 	 * 2. collection of failed test files, if test fails.
+	 * 
+	 * If testing is already cancelled (fail-fast), the file is skipped.
+	 * If worker does not respond after its deadline, the file is abandoned by watchdog and reported as failed.
 	 */
 	@Override
 	public void run() {
-		final SimpleAcceptProcessor processor = new SimpleAcceptProcessor(testDataFile, resultDir);
-		processor.process();
-		if (processor.isTestPassed()) {
-			bean.passedTests.incrementAndGet();
-		} else {
-			bean.failedTests.incrementAndGet();
-			bean.failedTestFiles.add(testDataFile.getName());
+		if (bean.isCancelled()) {
+			bean.skippedTests.incrementAndGet();
+			bean.terminationLatch.countDown();
+			return;
+		}
+		bean.executedTests.incrementAndGet();
+		bean.firstFileStartNanos.compareAndSet(0, System.nanoTime());
+		
+		SimpleAcceptWatchdog.Deadline deadline = null;
+		SimpleAcceptProcessor processor = null;
+		final long startNanos = System.nanoTime();
+		bean.activeFiles.put(testDataFile.getName(), startNanos);
+		try {
+			if (context.watchdog != null) {
+				deadline = context.watchdog.start(testDataFile.getName(),
+						context.config.getIntProperty(SimpleAcceptUtility.FILE_TIMEOUT_MILLIS, 0), new Runnable() {
+					@Override
+					public void run() {
+						bean.fileResults.put(testDataFile.getName(), SimpleAcceptRunResult.FILE_FAILED);
+						bean.recordFailedFile(testDataFile.getName() + " (abandoned, not responding)");
+						journal(SimpleAcceptRunResult.FILE_FAILED, testDataFile.getName() + " (abandoned, not responding)");
+						bean.terminationLatch.countDown();
+					}
+				});
+			}
+			processor = new SimpleAcceptProcessor(testDataFile, context);
+			processor.process();
+		} finally {
+			bean.activeFiles.remove(testDataFile.getName());
+			/* Result of abandoned file is already recorded. */
+			if (deadline == null || deadline.stop()) {
+				if (processor != null && processor.isTestPassed()) {
+					bean.fileResults.put(testDataFile.getName(), SimpleAcceptRunResult.FILE_PASSED);
+					bean.passedTests.incrementAndGet();
+					recordExecutionTime(System.nanoTime() - startNanos);
+					journal(SimpleAcceptRunResult.FILE_PASSED, null);
+				} else if (processor != null && processor.isTestCancelled()) {
+					bean.fileResults.put(testDataFile.getName(), SimpleAcceptRunResult.FILE_CANCELLED);
+					bean.cancelledTestFiles.add(testDataFile.getName());
+				} else {
+					bean.fileResults.put(testDataFile.getName(), SimpleAcceptRunResult.FILE_FAILED);
+					bean.recordFailedFile(testDataFile.getName());
+					journal(SimpleAcceptRunResult.FILE_FAILED, testDataFile.getName());
+				}
+				bean.terminationLatch.countDown();
+			}
+		}
+	}
+	
+	/**
+	 * Compares execution time of passed file with its history, if execution times are tracked.
+	 * 
+	 * @param elapsedNanos
+	 */
+	private void recordExecutionTime(final long elapsedNanos) {
+		if (context.perfHistory == null)
+			return;
+		/* Row slice of a file (sharding) is recorded separately from whole file. */
+		final String perf = context.perfHistory.record(context.getReportName(testDataFile), elapsedNanos);
+		if (perf.startsWith(SimpleAcceptPerfHistory.PERF_REGRESSED)) {
+			final String regression = testDataFile.getName() + " : " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms. " + perf;
+			bean.perfRegressions.add(regression);
+			if (context.journal != null) {
+				try {
+					context.journal.recordPerfRegression(testDataFile.getName(), regression);
+				} catch (final IOException e) {
+					context.log.warning(testDataFile.getName(), "Exception occurred while journaling performance regression.", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Journals completed file, so that resumed run does not test it again (refer SimpleAcceptJournal).
+	 * Cancelled file is not journaled, it is tested by resumed run.
+	 * 
+	 * @param result
+	 * @param failedEntry entry of failed tests, null if passed
+	 */
+	private void journal(final String result, final String failedEntry) {
+		if (context.journal == null)
+			return;
+		try {
+			context.journal.recordFile(testDataFile.getName(), context.getReportName(testDataFile), result, failedEntry);
+		} catch (final IOException e) {
+			context.log.warning(testDataFile.getName(), "Exception occurred while journaling test data file.", e);
 		}
-		bean.terminationLatch.countDown();
 	}
 }
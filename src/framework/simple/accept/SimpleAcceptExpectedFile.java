@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Expected output values kept outside of test data file, for outputs too large for a CSV cell (e.g. serialized documents).
+ * Expected cell can be
+ * 1. {file:<path>} : actual value is compared with content of the file (path relative to test data file), streamed side by side
+ * 2. {sha256:<hex>} : actual value is hashed (streamed) and compared with given SHA-256
+ * Report shows the first difference (offset and both values there) / the actual hash, never the whole value.
+ * 
+ * Output field of type byte[], InputStream, File or Path is compared (hashed) byte by byte. Any other value is compared character by
+ * character with the file read as UTF-8 (hashed as UTF-8), as CharSequence (e.g. StringBuilder, not copied) or by its toString().
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptExpectedFile {
+	
+	static final String FILE = "{file:";
+	static final String SHA256 = "{sha256:";
+	private static final String END = "}";
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * @param expected expected cell of test row
+	 * @return true if expected value is kept outside of test data file
+	 */
+	static boolean isReference(final String expected) {
+		return expected != null && (expected.startsWith(FILE) || expected.startsWith(SHA256)) && expected.endsWith(END);
+	}
+	
+	/**
+	 * Compares actual value with given expected value kept outside of test data file.
+	 * 
+	 * @param baseDir directory relative paths of expected files are resolved against (i.e. of test data file)
+	 * @param expected refer isReference()
+	 * @param actual value of output field
+	 * @return null if values match, otherwise the first difference as reported
+	 * @throws IOException
+	 */
+	static String compare(final File baseDir, final String expected, final Object actual) throws IOException {
+		if (expected.startsWith(SHA256)) {
+			final String hash = hash(actual);
+			return hash.equalsIgnoreCase(expected.substring(SHA256.length(), expected.length() - END.length()).trim()) ? null
+					: "Actual SHA-256 [" + hash + "].";
+		}
+		File file = new File(expected.substring(FILE.length(), expected.length() - END.length()).trim());
+		if (!file.isAbsolute())
+			file = new File(baseDir, file.getPath());
+		if (!file.isFile())
+			throw new IOException("Expected file " + file + " does not exist.");
+		if (!isBytes(actual))
+			return compareChars(file, toChars(actual));
+		final InputStream expectedStream = new FileInputStream(file);
+		try {
+			final InputStream actualStream = openBytes(actual);
+			try {
+				return compareBytes(expectedStream, actualStream);
+			} finally {
+				actualStream.close();
+			}
+		} finally {
+			expectedStream.close();
+		}
+	}
+	
+	private static boolean isBytes(final Object actual) {
+		return actual instanceof byte[] || actual instanceof InputStream || actual instanceof File || actual instanceof Path;
+	}
+	
+	private static CharSequence toChars(final Object actual) {
+		return (actual instanceof CharSequence) ? (CharSequence) actual : String.valueOf(actual);
+	}
+	
+	private static InputStream openBytes(final Object actual) throws IOException {
+		if (actual instanceof byte[])
+			return new ByteArrayInputStream((byte[]) actual);
+		if (actual instanceof InputStream)
+			return (InputStream) actual;
+		if (actual instanceof File)
+			return new FileInputStream((File) actual);
+		return Files.newInputStream((Path) actual);
+	}
+	
+	/**
+	 * Compares both streams chunk by chunk.
+	 * 
+	 * @param expected
+	 * @param actual
+	 * @return null if content is the same, otherwise the first difference
+	 * @throws IOException
+	 */
+	private static String compareBytes(final InputStream expected, final InputStream actual) throws IOException {
+		final byte[] expectedBuffer = new byte[BUFFER_SIZE];
+		final byte[] actualBuffer = new byte[BUFFER_SIZE];
+		for (long offset=0; ; ) {
+			final int expectedCount = fill(expected, expectedBuffer);
+			final int actualCount = fill(actual, actualBuffer);
+			final int count = Math.min(expectedCount, actualCount);
+			for (int i=0; i<count; i++) {
+				if (expectedBuffer[i] != actualBuffer[i])
+					return String.format("Actual differs at byte %d (expected 0x%02x / actual 0x%02x).", offset + i, expectedBuffer[i], actualBuffer[i]);
+			}
+			/* Chunks are filled up, they can be shorter only at the end. */
+			if (actualCount < expectedCount)
+				return "Actual ends at byte " + (offset + actualCount) + ". Expected is longer.";
+			if (expectedCount < actualCount)
+				return "Actual is longer than expected " + (offset + expectedCount) + " bytes.";
+			if (count == 0)
+				return null;
+			offset += count;
+		}
+	}
+	
+	private static int fill(final InputStream stream, final byte[] buffer) throws IOException {
+		int count = 0;
+		int read;
+		while (count < buffer.length && (read = stream.read(buffer, count, buffer.length - count)) > 0)
+			count += read;
+		return count;
+	}
+	
+	/**
+	 * Compares given characters with the file read as UTF-8, chunk by chunk.
+	 * 
+	 * @param file
+	 * @param actual
+	 * @return null if content is the same, otherwise the first difference
+	 * @throws IOException
+	 */
+	private static String compareChars(final File file, final CharSequence actual) throws IOException {
+		final Reader expected = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+		try {
+			final char[] buffer = new char[BUFFER_SIZE];
+			for (int offset=0; ; ) {
+				int count = 0;
+				int read;
+				while (count < buffer.length && (read = expected.read(buffer, count, buffer.length - count)) > 0)
+					count += read;
+				final int actualCount = Math.min(count, actual.length() - offset);
+				for (int i=0; i<actualCount; i++) {
+					if (buffer[i] != actual.charAt(offset + i))
+						return String.format("Actual differs at character %d (expected U+%04X / actual U+%04X).", offset + i, (int) buffer[i], (int) actual.charAt(offset + i));
+				}
+				if (actualCount < count)
+					return "Actual ends at character " + (offset + actualCount) + ". Expected is longer.";
+				if (count == 0)
+					return (offset < actual.length()) ? "Actual is longer than expected " + offset + " characters." : null;
+				offset += count;
+			}
+		} finally {
+			expected.close();
+		}
+	}
+	
+	private static String hash(final Object actual) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		if (!isBytes(actual)) {
+			/* Encoded chunk by chunk, a surrogate pair is not split between chunks. */
+			final CharSequence chars = toChars(actual);
+			for (int start=0; start<chars.length(); ) {
+				int end = Math.min(chars.length(), start + BUFFER_SIZE);
+				if (end < chars.length() && Character.isHighSurrogate(chars.charAt(end - 1)))
+					end--;
+				digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars, start, end)));
+				start = end;
+			}
+		} else {
+			final InputStream stream = openBytes(actual);
+			try {
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				int count;
+				while ((count = stream.read(buffer)) > 0)
+					digest.update(buffer, 0, count);
+			} finally {
+				stream.close();
+			}
+		}
+		final StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+}
@@ -0,0 +1,584 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Compiled (binary) form of a test data file, kept next to it as <file-name>.bin, e.g. SampleTestData.csv.bin
+ * Input values of test rows are converted to the types of test class fields once, while compiling,
+ * so that testing reads the memory mapped fixture without splitting lines or parsing numbers : primitive values are
+ * set on test class instance straight from the mapping, by fields looked up once per TestParams line (refer Cells).
+ * Line is the only text decoded per row, values are cut out of it at positions found while compiling.
+ * Gain over test data file is measured by benchmark target of build.xml.
+ * 
+ * Fixture is used only while it is up to date, i.e. test data file (size / last modified time) and types of
+ * test class fields are the same as when it was compiled. Otherwise test data file is read (or compiled again).
+ * Values which cannot be converted while compiling (dates, {today}, invalid numbers) are converted while testing, as usual.
+ * Test data files with generator cells (refer SimpleAcceptRowGenerator) are not compiled.
+ * 
+ * File format : magic, version, size and last modified time of test data file, TestClass line, then records...
+ * record type (line / TestParams line / test row) and line. TestParams line is followed by names of input params,
+ * test row by number of values and a cell per value (type, converted value, start and end of the value in the line).
+ * Records are followed by types of test class fields (name, type) and, as last 8 bytes, offset of the field types.
+ * 
+ * Usage : java framework.simple.accept.SimpleAcceptFixture [test-data-file-or-folder]...
+ * (test data files of configured folder, if none is given)
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptFixture {
+	
+	static final String FIXTURE_FILE_EXT = ".bin";
+	/* Test data files are read as they are. */
+	static final String MODE_OFF = "off";
+	/* Up to date fixtures are used, test data files are read otherwise. */
+	static final String MODE_USE = "use";
+	/* Fixtures which are missing / not up to date are compiled before use. */
+	static final String MODE_COMPILE = "compile";
+	
+	private static final int MAGIC = 0x53414658;
+	private static final short VERSION = 2;
+	private static final byte RECORD_LINE = 0;
+	private static final byte RECORD_ROW = 1;
+	private static final byte RECORD_PARAMS = 2;
+	/* Cell : type (byte), converted value (long, bits of float / double), start and end of the value in the line (int). */
+	private static final int CELL_SIZE = 17;
+	private static final byte TYPE_STRING = 0;
+	private static final byte TYPE_INT = 1;
+	private static final byte TYPE_LONG = 2;
+	private static final byte TYPE_FLOAT = 3;
+	private static final byte TYPE_DOUBLE = 4;
+	private static final byte TYPE_BOOLEAN = 5;
+	private static final String CSV_DELIM = ",";
+	
+	/**
+	 * 
+	 * @param args test data files / folders to compile
+	 * @throws Throwable
+	 */
+	public static void main(String[] args) throws Throwable {
+		final List<File> testDataFiles = new ArrayList<File>();
+		if (args.length == 0) {
+			final SimpleAcceptConfig config = SimpleAcceptConfig.load();
+			testDataFiles.addAll(SimpleAcceptUtility.getFiles(new File(config.getProperty(SimpleAcceptUtility.TEST_DATA_FOLDER, true)),
+					config.getProperty(SimpleAcceptUtility.TEST_DATA_FILES, false)));
+		}
+		for (String arg : args) {
+			final File file = new File(arg);
+			if (file.isDirectory())
+				testDataFiles.addAll(SimpleAcceptUtility.getFiles(file, null));
+			else
+				testDataFiles.add(file);
+		}
+		boolean isCompiled = true;
+		for (File testDataFile : testDataFiles) {
+			try {
+				compile(testDataFile);
+				SimpleAcceptUtility.getLogger().info("Compiled " + testDataFile + " to " + getFixtureFile(testDataFile).getName());
+			} catch (final IOException e) {
+				isCompiled = false;
+				SimpleAcceptUtility.getLogger().warning("Cannot compile " + testDataFile + " : " + e.getMessage());
+			}
+		}
+		if (!isCompiled)
+			throw new Error("Compiling failed.");
+	}
+	
+	/**
+	 * Returns configured fixture mode.
+	 * 
+	 * @param config
+	 * @return off / use / compile
+	 */
+	static String getMode(final SimpleAcceptConfig config) {
+		final String mode = config.getProperty(SimpleAcceptUtility.FIXTURE, false);
+		if (mode == null || mode.trim().isEmpty())
+			return MODE_OFF;
+		if (!MODE_OFF.equalsIgnoreCase(mode.trim()) && !MODE_USE.equalsIgnoreCase(mode.trim()) && !MODE_COMPILE.equalsIgnoreCase(mode.trim()))
+			throw new RuntimeException("Invalid fixture mode " + mode + ". Expected : " + MODE_OFF + " / " + MODE_USE + " / " + MODE_COMPILE);
+		return mode.trim().toLowerCase();
+	}
+	
+	/**
+	 * Opens given test data file for reading, from its fixture if it can be used in given mode.
+	 * 
+	 * @param testDataFile
+	 * @param mode off / use / compile
+	 * @return reader of test data file / fixture
+	 * @throws IOException
+	 */
+	static SimpleAcceptDataReader open(final File testDataFile, final String mode) throws IOException {
+		if (!MODE_OFF.equals(mode)) {
+			Reader reader = load(testDataFile);
+			if (reader == null && MODE_COMPILE.equals(mode)) {
+				try {
+					compile(testDataFile);
+					reader = load(testDataFile);
+				} catch (final IOException e) {
+					SimpleAcceptUtility.getLogger().warning("Cannot compile " + testDataFile + ", reading it instead : " + e.getMessage());
+				}
+			}
+			if (reader != null)
+				return reader;
+		}
+		return new SimpleAcceptRowGenerator.Reader(new FileReader(testDataFile));
+	}
+	
+	/**
+	 * @param testDataFile
+	 * @return fixture file of given test data file
+	 */
+	static File getFixtureFile(final File testDataFile) {
+		return new File(testDataFile.getPath() + FIXTURE_FILE_EXT);
+	}
+	
+	/**
+	 * Compiles given test data file into its fixture. Fixture is replaced atomically,
+	 * so that testing running meanwhile reads either old or new one.
+	 * 
+	 * @param testDataFile
+	 * @throws IOException
+	 */
+	static void compile(final File testDataFile) throws IOException {
+		final long length = testDataFile.length();
+		final long lastModified = testDataFile.lastModified();
+		final BufferedReader reader = new BufferedReader(new FileReader(testDataFile));
+		final File tempFile = File.createTempFile(testDataFile.getName(), ".tmp", testDataFile.getAbsoluteFile().getParentFile());
+		try {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				String line = reader.readLine();
+				final Class<?> clazz = getTestClass(line);
+				if (clazz == null)
+					throw new IOException("No valid " + SimpleAcceptProcessor.TEST_CLASS + " line.");
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				out.writeLong(length);
+				out.writeLong(lastModified);
+				writeString(out, line);
+				
+				final Map<String, Byte> fieldTypes = new LinkedHashMap<String, Byte>();
+				byte[] inputTypes = new byte[0];
+				int paramCount = 0;
+				while ((line = reader.readLine()) != null) {
+					final String[] values = line.split(CSV_DELIM);
+					if (!SimpleAcceptProcessor.isTestRow(line)) {
+						if (values.length > 0 && values[0].equals(SimpleAcceptProcessor.TEST_PARAMS)) {
+							/* Input params are the ones without '?', before output params. */
+							final List<String> inputParams = new ArrayList<String>();
+							for (int i=1; i<values.length; i++) {
+								if (!values[i].isEmpty() && values[i].charAt(values[i].length() - 1) != '?')
+									inputParams.add(values[i]);
+							}
+							inputTypes = new byte[inputParams.size()];
+							for (int i=0; i<inputTypes.length; i++) {
+								inputTypes[i] = getType(clazz, inputParams.get(i));
+								fieldTypes.put(inputParams.get(i), inputTypes[i]);
+							}
+							paramCount = values.length - 1;
+							out.writeByte(RECORD_PARAMS);
+							writeString(out, line);
+							out.writeInt(inputParams.size());
+							for (String inputParam : inputParams)
+								writeString(out, inputParam);
+							continue;
+						}
+						out.writeByte(RECORD_LINE);
+						writeString(out, line);
+						continue;
+					}
+					if (SimpleAcceptRowGenerator.isGenerator(line))
+						throw new IOException("Test data file with generator cells is not compiled.");
+					/* Row not matching its params fails while testing, values are kept as they are. */
+					final boolean isTyped = values.length == paramCount;
+					out.writeByte(RECORD_ROW);
+					writeString(out, line);
+					writeRow(out, values, isTyped ? inputTypes : new byte[0]);
+				}
+				
+				/* Size saturates at Integer.MAX_VALUE, such fixture is not mapped anyway. */
+				final long recordsEnd = out.size();
+				out.writeInt(fieldTypes.size());
+				for (Map.Entry<String, Byte> fieldType : fieldTypes.entrySet()) {
+					writeString(out, fieldType.getKey());
+					out.writeByte(fieldType.getValue());
+				}
+				out.writeLong(recordsEnd);
+			} finally {
+				out.close();
+			}
+			if (testDataFile.length() != length || testDataFile.lastModified() != lastModified)
+				throw new IOException("Test data file has changed while compiling.");
+			try {
+				Files.move(tempFile.toPath(), getFixtureFile(testDataFile).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), getFixtureFile(testDataFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			reader.close();
+			tempFile.delete();
+		}
+	}
+	
+	/**
+	 * Maps fixture of given test data file, if it is up to date.
+	 * 
+	 * @param testDataFile
+	 * @return reader of the fixture, null if there is no up to date fixture
+	 */
+	private static Reader load(final File testDataFile) {
+		final File fixtureFile = getFixtureFile(testDataFile);
+		if (!fixtureFile.isFile())
+			return null;
+		try {
+			final ByteBuffer buffer;
+			final FileChannel channel = FileChannel.open(fixtureFile.toPath(), StandardOpenOption.READ);
+			try {
+				if (channel.size() > Integer.MAX_VALUE)
+					throw new IOException("Fixture is too large to map");
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				channel.close();
+			}
+			if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION)
+				throw new IOException("Unknown file format");
+			if (buffer.getLong() != testDataFile.length() || buffer.getLong() != testDataFile.lastModified())
+				return null;
+			final String firstLine = readString(buffer);
+			
+			/* Field types are checked against test class, as it may have changed since compiling. */
+			final int recordsEnd = (int) buffer.getLong(buffer.limit() - 8);
+			final ByteBuffer fieldTypes = buffer.duplicate();
+			fieldTypes.position(recordsEnd);
+			final Class<?> clazz = getTestClass(firstLine);
+			final int fieldCount = fieldTypes.getInt();
+			for (int i=0; i<fieldCount; i++) {
+				final String fieldName = readString(fieldTypes);
+				if (clazz == null || getType(clazz, fieldName) != fieldTypes.get())
+					return null;
+			}
+			buffer.limit(recordsEnd);
+			return new Reader(firstLine, clazz, buffer.slice());
+		} catch (final IOException e) {
+			SimpleAcceptUtility.getLogger().warning("Ignoring fixture " + fixtureFile + " : " + e);
+			return null;
+		} catch (final RuntimeException e) {
+			SimpleAcceptUtility.getLogger().warning("Ignoring fixture " + fixtureFile + " : " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * @param line first line of test data file
+	 * @return test class given by the line, null if it is not valid
+	 */
+	private static Class<?> getTestClass(final String line) {
+		final String[] tokens = (line != null) ? line.split(CSV_DELIM) : null;
+		if (tokens == null || tokens.length != 2 || !tokens[0].equals(SimpleAcceptProcessor.TEST_CLASS))
+			return null;
+		try {
+			return Class.forName(tokens[1]);
+		} catch (final ClassNotFoundException e) {
+			return null;
+		} catch (final LinkageError e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns type to which values of given field are converted while compiling, as SimpleAcceptUtility.setFieldValue() does.
+	 * 
+	 * @param clazz
+	 * @param fieldName
+	 * @return type, TYPE_STRING if values are set as they are or converted while testing
+	 */
+	private static byte getType(final Class<?> clazz, final String fieldName) {
+		final Class<?> type;
+		try {
+			type = clazz.getDeclaredField(fieldName).getType();
+		} catch (final NoSuchFieldException e) {
+			return TYPE_STRING;
+		}
+		if (type == int.class || type == Integer.class)
+			return TYPE_INT;
+		if (type == long.class || type == Long.class)
+			return TYPE_LONG;
+		if (type == float.class || type == Float.class)
+			return TYPE_FLOAT;
+		if (type == double.class || type == Double.class)
+			return TYPE_DOUBLE;
+		if (type == boolean.class || type == Boolean.class)
+			return TYPE_BOOLEAN;
+		return TYPE_STRING;
+	}
+	
+	/**
+	 * Writes cells of a test row, with conversion of its input values to given types where possible.
+	 * 
+	 * @param out
+	 * @param values
+	 * @param inputTypes types of input values
+	 * @throws IOException
+	 */
+	private static void writeRow(final DataOutputStream out, final String[] values, final byte[] inputTypes) throws IOException {
+		out.writeInt(values.length);
+		int start = 0;
+		for (int i=0; i<values.length; i++) {
+			byte type = (i < inputTypes.length) ? inputTypes[i] : TYPE_STRING;
+			long converted = 0;
+			if (type != TYPE_STRING) {
+				try {
+					converted = convert(values[i], type);
+				} catch (final NumberFormatException e) {
+					/* Fails while testing, as it would without fixture. */
+					type = TYPE_STRING;
+				}
+			}
+			out.writeByte(type);
+			out.writeLong(converted);
+			out.writeInt(start);
+			out.writeInt(start + values[i].length());
+			start += values[i].length() + CSV_DELIM.length();
+		}
+	}
+	
+	/**
+	 * Converts given value to given type, as SimpleAcceptUtility.setFieldValue() does.
+	 * 
+	 * @param value
+	 * @param type
+	 * @return converted value, as bits for float / double
+	 */
+	private static long convert(final String value, final byte type) {
+		switch (type) {
+		case TYPE_INT:
+			return Integer.parseInt(value);
+		case TYPE_LONG:
+			return Long.parseLong(value);
+		case TYPE_FLOAT:
+			return Float.floatToRawIntBits(Float.parseFloat(value));
+		case TYPE_DOUBLE:
+			return Double.doubleToRawLongBits(Double.parseDouble(value));
+		case TYPE_BOOLEAN:
+			return Boolean.parseBoolean(value) ? 1 : 0;
+		default:
+			throw new IllegalArgumentException("Not a converted type : " + type);
+		}
+	}
+	
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Reader of memory mapped fixture.
+	 */
+	static class Reader implements SimpleAcceptDataReader {
+		
+		private final String firstLine;
+		private final Class<?> clazz;
+		private ByteBuffer buffer;
+		private boolean isFirstLineRead = false;
+		/* Fields of input params of current TestParams line, null element if there is no such field. */
+		private Field[] inputFields;
+		private Cells cells;
+		private String[] values;
+		
+		Reader(final String firstLine, final Class<?> clazz, final ByteBuffer buffer) {
+			this.firstLine = firstLine;
+			this.clazz = clazz;
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public String readLine() throws IOException {
+			cells = null;
+			values = null;
+			if (!isFirstLineRead) {
+				isFirstLineRead = true;
+				return firstLine;
+			}
+			if (buffer == null || !buffer.hasRemaining())
+				return null;
+			final byte record = buffer.get();
+			final String line = readString(buffer);
+			if (record == RECORD_PARAMS) {
+				/* Fields are looked up once per TestParams line, not per row. */
+				inputFields = new Field[buffer.getInt()];
+				for (int i=0; i<inputFields.length; i++)
+					inputFields[i] = getField(readString(buffer));
+			} else if (record == RECORD_ROW) {
+				final int count = buffer.getInt();
+				cells = new Cells(line, buffer, buffer.position(), count, inputFields);
+				buffer.position(buffer.position() + count * CELL_SIZE);
+			}
+			return line;
+		}
+		
+		private Field getField(final String fieldName) {
+			try {
+				final Field field = clazz.getDeclaredField(fieldName);
+				field.setAccessible(true);
+				return field;
+			} catch (final NoSuchFieldException e) {
+				/* Fails while testing, as it would without fixture. */
+				return null;
+			}
+		}
+		
+		@Override
+		public boolean isGenerated() {
+			return false;
+		}
+		
+		@Override
+		public String[] getValues() {
+			if (values == null && cells != null)
+				values = cells.getValues();
+			return values;
+		}
+		
+		@Override
+		public Cells getCells() {
+			return cells;
+		}
+		
+		@Override
+		public void close() {
+			/* Mapping is released once the buffer (and cells of rows) is garbage collected. */
+			buffer = null;
+		}
+	}
+	
+	/**
+	 * Cells of a test row, in place in the mapped fixture. Rows are read in place by executing threads too
+	 * (e.g. rows of batch test class), so the buffer is read at given offsets only.
+	 */
+	static class Cells {
+		
+		private final String line;
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int count;
+		private final Field[] inputFields;
+		
+		Cells(final String line, final ByteBuffer buffer, final int offset, final int count, final Field[] inputFields) {
+			this.line = line;
+			this.buffer = buffer;
+			this.offset = offset;
+			this.count = count;
+			this.inputFields = inputFields;
+		}
+		
+		/**
+		 * @return values (CSV cells) of the row, as they are in the line
+		 */
+		String[] getValues() {
+			final String[] values = new String[count];
+			for (int i=0; i<count; i++) {
+				final int cell = offset + i * CELL_SIZE;
+				values[i] = line.substring(buffer.getInt(cell + 9), buffer.getInt(cell + 13));
+			}
+			return values;
+		}
+		
+		/**
+		 * Sets converted input value of given index on given test class instance, primitive fields without boxing.
+		 * 
+		 * @param index index of input param
+		 * @param instance
+		 * @return true if set, false if the value is to be set from its text (not converted while compiling)
+		 * @throws IllegalAccessException
+		 */
+		boolean bind(final int index, final Object instance) throws IllegalAccessException {
+			if (inputFields == null || index >= inputFields.length || index >= count)
+				return false;
+			final Field field = inputFields[index];
+			final int cell = offset + index * CELL_SIZE;
+			final byte type = buffer.get(cell);
+			/* Instance of another test class (e.g. compared one) is bound from text. */
+			if (field == null || type == TYPE_STRING || field.getDeclaringClass() != instance.getClass())
+				return false;
+			final long converted = buffer.getLong(cell + 1);
+			final boolean isPrimitive = field.getType().isPrimitive();
+			switch (type) {
+			case TYPE_INT:
+				if (isPrimitive)
+					field.setInt(instance, (int) converted);
+				else
+					field.set(instance, Integer.valueOf((int) converted));
+				break;
+			case TYPE_LONG:
+				if (isPrimitive)
+					field.setLong(instance, converted);
+				else
+					field.set(instance, Long.valueOf(converted));
+				break;
+			case TYPE_FLOAT:
+				if (isPrimitive)
+					field.setFloat(instance, Float.intBitsToFloat((int) converted));
+				else
+					field.set(instance, Float.valueOf(Float.intBitsToFloat((int) converted)));
+				break;
+			case TYPE_DOUBLE:
+				if (isPrimitive)
+					field.setDouble(instance, Double.longBitsToDouble(converted));
+				else
+					field.set(instance, Double.valueOf(Double.longBitsToDouble(converted)));
+				break;
+			case TYPE_BOOLEAN:
+				if (isPrimitive)
+					field.setBoolean(instance, converted != 0);
+				else
+					field.set(instance, Boolean.valueOf(converted != 0));
+				break;
+			default:
+				return false;
+			}
+			return true;
+		}
+	}
+}
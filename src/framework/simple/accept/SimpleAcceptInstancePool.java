@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Pool of initialized test class instances.
+ * Pooling mode is configured by simpleaccept.instance.pooling...
+ * 1. none (default) - new instance for every test data file, destroyed after the file.
+ * 2. thread - one instance per test class per worker thread, reused for all files processed by that worker.
+ * 3. shared - instances are borrowed for a file and returned afterwards, reused by any worker.
+ * Pooled instances are destroyed at the end of testing.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptInstancePool {
+	
+	static final String POOLING_NONE = "none";
+	static final String POOLING_THREAD = "thread";
+	static final String POOLING_SHARED = "shared";
+	
+	private final String pooling;
+	private final SimpleAcceptLog log;
+	private final Queue<SimpleAcceptBase> createdInstances = new ConcurrentLinkedQueue<SimpleAcceptBase>();
+	private final Map<Class<?>, Queue<SimpleAcceptBase>> idleInstances = new ConcurrentHashMap<Class<?>, Queue<SimpleAcceptBase>>();
+	private final ThreadLocal<Map<Class<?>, SimpleAcceptBase>> threadInstances = new ThreadLocal<Map<Class<?>, SimpleAcceptBase>>() {
+		@Override
+		protected Map<Class<?>, SimpleAcceptBase> initialValue() {
+			return new HashMap<Class<?>, SimpleAcceptBase>();
+		}
+	};
+	
+	/**
+	 * @param pooling none / thread / shared, null means none
+	 */
+	public SimpleAcceptInstancePool(final String pooling) {
+		this(pooling, SimpleAcceptLog.getDefault());
+	}
+	
+	/**
+	 * @param pooling none / thread / shared, null means none
+	 * @param log log of the run
+	 */
+	SimpleAcceptInstancePool(final String pooling, final SimpleAcceptLog log) {
+		final String mode = (pooling == null || pooling.trim().isEmpty()) ? POOLING_NONE : pooling.trim().toLowerCase();
+		if (!POOLING_NONE.equals(mode) && !POOLING_THREAD.equals(mode) && !POOLING_SHARED.equals(mode))
+			throw new RuntimeException("Invalid instance pooling [" + pooling + "]. Expected one of " + POOLING_NONE + ", " + POOLING_THREAD + ", " + POOLING_SHARED);
+		this.pooling = mode;
+		this.log = log;
+	}
+	
+	/**
+	 * Returns initialized instance of given test class, for processing one test data file.
+	 * 
+	 * @param clazz
+	 * @return instance
+	 * @throws Exception
+	 */
+	public SimpleAcceptBase borrow(final Class<? extends SimpleAcceptBase> clazz) throws Exception {
+		if (POOLING_THREAD.equals(pooling)) {
+			SimpleAcceptBase instance = threadInstances.get().get(clazz);
+			if (instance == null) {
+				instance = create(clazz);
+				threadInstances.get().put(clazz, instance);
+			}
+			return instance;
+		} else if (POOLING_SHARED.equals(pooling)) {
+			final Queue<SimpleAcceptBase> idle = idleInstances.get(clazz);
+			final SimpleAcceptBase instance = (idle != null) ? idle.poll() : null;
+			return (instance != null) ? instance : create(clazz);
+		}
+		return create(clazz);
+	}
+	
+	/**
+	 * Gives back instance once processing of test data file is finished.
+	 * 
+	 * @param instance
+	 */
+	public void release(final SimpleAcceptBase instance) {
+		if (POOLING_SHARED.equals(pooling)) {
+			Queue<SimpleAcceptBase> idle = idleInstances.get(instance.getClass());
+			if (idle == null) {
+				idleInstances.putIfAbsent(instance.getClass(), new ConcurrentLinkedQueue<SimpleAcceptBase>());
+				idle = idleInstances.get(instance.getClass());
+			}
+			idle.offer(instance);
+		} else if (POOLING_NONE.equals(pooling)) {
+			destroy(instance);
+		}
+	}
+	
+	/**
+	 * Destroys all pooled instances. To be called at the end of testing.
+	 */
+	public void destroyAll() {
+		SimpleAcceptBase instance = createdInstances.poll();
+		while (instance != null) {
+			destroy(instance);
+			instance = createdInstances.poll();
+		}
+		idleInstances.clear();
+	}
+	
+	/**
+	 * Creates instance of given test class by its no-argument constructor, without initializing it.
+	 * 
+	 * @param clazz
+	 * @return instance
+	 * @throws Exception
+	 */
+	static <T extends SimpleAcceptBase> T newInstance(final Class<T> clazz) throws Exception {
+		try {
+			return clazz.getDeclaredConstructor().newInstance();
+		} catch (final InvocationTargetException e) {
+			throw new Exception("Exception occurred in constructor of test class : " + clazz, e.getCause());
+		} catch (final NoSuchMethodException e) {
+			throw new Exception("NoSuchMethodException occurred while creating instance of test class : " + clazz
+					+ ". Test class needs a no-argument constructor.", e);
+		} catch (final InstantiationException e) {
+			throw new Exception("InstantiationException occurred while creating instance of test class : " + clazz, e);
+		} catch (final IllegalAccessException e) {
+			throw new Exception("IllegalAccessException occurred while creating instance of test class : " + clazz, e);
+		}
+	}
+	
+	/**
+	 * Creates and initializes instance of given test class.
+	 * 
+	 * @param clazz
+	 * @return instance
+	 * @throws Exception
+	 */
+	private SimpleAcceptBase create(final Class<? extends SimpleAcceptBase> clazz) throws Exception {
+		final SimpleAcceptBase instance = newInstance(clazz);
+		try {
+			instance.init();
+		} catch (final Exception e) {
+			throw new Exception("Exception occurred while initializing instance of test class : " + clazz, e);
+		}
+		if (!POOLING_NONE.equals(pooling))
+			createdInstances.add(instance);
+		return instance;
+	}
+	
+	private void destroy(final SimpleAcceptBase instance) {
+		try {
+			instance.destroy();
+		} catch (final Exception e) {
+			log.warning(null, "Exception occurred while destroying instance of test class : " + instance.getClass(), e);
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Checkpoint journal of a run (simpleaccept.journal=true), so that a run stopped half way (e.g. JVM has died) can be resumed
+ * (simpleaccept.resume) in its result directory, instead of starting from zero. Runs are not journaled unless configured.
+ * 
+ * 1. Completed rows are journaled by row outcomes of every test data file (refer SimpleAcceptRowOutcomes)
+ * 2. Completed files (passed / failed) and performance regressions are journaled in SimpleAccept.journal
+ * Both are append only and written through to the file system, fsync is batched (simpleaccept.journal.sync.millis, default 1000 ms)
+ * so that a crash of the machine loses at most the last interval of work.
+ * 
+ * Resumed run does not test completed files again, their results are restored from the journal.
+ * Rows completed by other files are reported as they were and the remaining rows are executed,
+ * so that final reports and ReadMe.txt are the same as of an uninterrupted run.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptJournal implements Closeable {
+	
+	static final String JOURNAL_FILE_NAME = "SimpleAccept.journal";
+	static final String RESUME_LATEST = "latest";
+	/* Row outcomes of a file completed in part, read by resumed run. */
+	static final String RESUME_FILE_EXT = ".resume";
+	static final int DEFAULT_SYNC_MILLIS = 1000;
+	
+	private static final String SEPARATOR = "\t";
+	private static final String RECORD_FILE = "F";
+	private static final String RECORD_PERF_REGRESSION = "P";
+	
+	private final FileOutputStream stream;
+	private final BufferedWriter writer;
+	private final long syncNanos;
+	private long lastSyncNanos = System.nanoTime();
+	
+	/**
+	 * Opens journal of given result directory, for appending.
+	 * 
+	 * @param resultDir
+	 * @param syncMillis 0 means journal is never synced (file system decides when it is written to disk)
+	 * @throws IOException
+	 */
+	SimpleAcceptJournal(final File resultDir, final int syncMillis) throws IOException {
+		this.stream = new FileOutputStream(new File(resultDir, JOURNAL_FILE_NAME), true);
+		this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		this.syncNanos = (syncMillis > 0) ? syncMillis * 1000000L : -1;
+	}
+	
+	/**
+	 * @param config
+	 * @return true if completed rows and files of the run are journaled, as configured or because the run is resumed
+	 */
+	static boolean isEnabled(final SimpleAcceptConfig config) {
+		final String resume = config.getProperty(SimpleAcceptUtility.RESUME, false);
+		return Boolean.parseBoolean(config.getProperty(SimpleAcceptUtility.JOURNAL, false))
+				|| (resume != null && !resume.trim().isEmpty());
+	}
+	
+	/**
+	 * @param config
+	 * @return fsync interval of journals, 0 means never
+	 */
+	static int getSyncMillis(final SimpleAcceptConfig config) {
+		return config.getIntProperty(SimpleAcceptUtility.JOURNAL_SYNC_MILLIS, DEFAULT_SYNC_MILLIS);
+	}
+	
+	/**
+	 * Returns result directory of the run to be resumed, as configured (simpleaccept.resume).
+	 * 
+	 * @param config
+	 * @param testDataDir
+	 * @return directory, null if testing is not resumed
+	 */
+	static File getResumeDir(final SimpleAcceptConfig config, final File testDataDir) {
+		final String resume = config.getProperty(SimpleAcceptUtility.RESUME, false);
+		if (resume == null || resume.trim().isEmpty())
+			return null;
+		if (!RESUME_LATEST.equalsIgnoreCase(resume.trim())) {
+			final File resumeDir = new File(testDataDir, resume.trim());
+			if (!new File(resumeDir, JOURNAL_FILE_NAME).isFile())
+				throw new RuntimeException("Invalid " + SimpleAcceptUtility.RESUME + " : " + resume + ". No " + JOURNAL_FILE_NAME + " in " + resumeDir);
+			return resumeDir;
+		}
+		/* Result directories are named by their time stamp. */
+		File latest = null;
+		final File[] dirs = testDataDir.listFiles();
+		for (int i=0; dirs != null && i<dirs.length; i++) {
+			if (new File(dirs[i], JOURNAL_FILE_NAME).isFile() && (latest == null || dirs[i].getName().compareTo(latest.getName()) > 0))
+				latest = dirs[i];
+		}
+		if (latest == null)
+			throw new RuntimeException("Invalid " + SimpleAcceptUtility.RESUME + " : " + resume + ". No run to resume in " + testDataDir);
+		return latest;
+	}
+	
+	/**
+	 * Journals completed test data file.
+	 * 
+	 * @param fileName
+	 * @param reportName name of the file as used for its report
+	 * @param result FILE_PASSED / FILE_FAILED
+	 * @param failedEntry entry of failed tests, null if passed
+	 * @throws IOException
+	 */
+	synchronized void recordFile(final String fileName, final String reportName, final String result, final String failedEntry) throws IOException {
+		write(RECORD_FILE + SEPARATOR + fileName + SEPARATOR + reportName + SEPARATOR + result + SEPARATOR
+				+ ((failedEntry != null) ? failedEntry : ""));
+	}
+	
+	/**
+	 * Journals performance regression of a completed test row or file.
+	 * 
+	 * @param fileName
+	 * @param regression
+	 * @throws IOException
+	 */
+	synchronized void recordPerfRegression(final String fileName, final String regression) throws IOException {
+		write(RECORD_PERF_REGRESSION + SEPARATOR + fileName + SEPARATOR + regression);
+	}
+	
+	private void write(final String record) throws IOException {
+		writer.write(record);
+		writer.newLine();
+		/* Written through, so that only a crash of the machine can lose it. */
+		writer.flush();
+		if (syncNanos > 0 && System.nanoTime() - lastSyncNanos >= syncNanos) {
+			stream.getFD().sync();
+			lastSyncNanos = System.nanoTime();
+		}
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		writer.flush();
+		if (syncNanos > 0)
+			stream.getFD().sync();
+		writer.close();
+	}
+	
+	/**
+	 * Forces given file to disk, e.g. report of a completed file before the file is journaled.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	static void sync(final File file) throws IOException {
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Cuts off incomplete last line of given file, written while the run has stopped.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	static void truncateTornTail(final File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long length = raf.length();
+			while (length > 0) {
+				raf.seek(length - 1);
+				if (raf.read() == '\n')
+					break;
+				length--;
+			}
+			raf.setLength(length);
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Reads journal of the run to be resumed. Row outcomes of files completed in part are kept aside (<report-name>.outcomes.resume),
+	 * to be carried forward by the processor, so that they do not get overwritten by the resumed run.
+	 * 
+	 * @param resultDir
+	 * @return completed work of the run
+	 * @throws IOException
+	 */
+	static Recovery recover(final File resultDir) throws IOException {
+		final Recovery recovery = new Recovery();
+		final File journalFile = new File(resultDir, JOURNAL_FILE_NAME);
+		truncateTornTail(journalFile);
+		final List<String> reportNames = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8));
+		try {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				final String[] tokens = line.split(SEPARATOR, 5);
+				if (tokens[0].equals(RECORD_FILE) && tokens.length == 5) {
+					recovery.files.put(tokens[1], new CompletedFile(tokens[1], tokens[3], tokens[4].isEmpty() ? null : tokens[4]));
+					reportNames.add(tokens[2]);
+				} else if (tokens[0].equals(RECORD_PERF_REGRESSION) && tokens.length >= 3) {
+					recovery.perfRegressions.add(line.substring(tokens[0].length() + tokens[1].length() + 2));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		
+		final File[] files = resultDir.listFiles();
+		for (int i=0; files != null && i<files.length; i++) {
+			final String name = files[i].getName();
+			if (!name.endsWith(SimpleAcceptRowOutcomes.FILE_EXT))
+				continue;
+			final File resumeFile = new File(resultDir, name + RESUME_FILE_EXT);
+			if (reportNames.contains(name.substring(0, name.length() - SimpleAcceptRowOutcomes.FILE_EXT.length()))) {
+				resumeFile.delete();
+				continue;
+			}
+			truncateTornTail(files[i]);
+			/* Outcomes of earlier attempt are kept, if resumed run has stopped again before carrying all of them forward. */
+			if (resumeFile.isFile() && resumeFile.length() >= files[i].length()) {
+				files[i].delete();
+			} else {
+				resumeFile.delete();
+				if (!files[i].renameTo(resumeFile))
+					throw new IOException("Cannot rename " + files[i] + " to " + resumeFile);
+			}
+		}
+		return recovery;
+	}
+	
+	/**
+	 * Completed work of a run to be resumed.
+	 */
+	static class Recovery {
+		
+		/* Completed files by file name. */
+		final Map<String, CompletedFile> files = new HashMap<String, CompletedFile>();
+		/* Regressions of completed rows and files. Rows completed before an unsynced tail was lost are executed again,
+		 * their regressions can be reported twice then. */
+		final List<String> perfRegressions = new ArrayList<String>();
+	}
+	
+	/**
+	 * Test data file completed before the run has stopped.
+	 */
+	static class CompletedFile {
+		
+		final String fileName;
+		final String result;
+		final String failedEntry;
+		
+		private CompletedFile(final String fileName, final String result, final String failedEntry) {
+			this.fileName = fileName;
+			this.result = result;
+			this.failedEntry = failedEntry;
+		}
+		
+		/**
+		 * Restores result of the file, as if it was tested by the resumed run.
+		 * 
+		 * @param bean
+		 */
+		void restore(final SimpleAcceptResultBean bean) {
+			bean.executedTests.incrementAndGet();
+			bean.fileResults.put(fileName, result);
+			if (SimpleAcceptRunResult.FILE_PASSED.equals(result))
+				bean.passedTests.incrementAndGet();
+			else
+				bean.recordFailedFile((failedEntry != null) ? failedEntry : fileName);
+			bean.terminationLatch.countDown();
+		}
+	}
+}
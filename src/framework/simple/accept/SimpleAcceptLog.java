@@ -0,0 +1,365 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Asynchronous log of a testing run, used by workers instead of printing stack traces.
+ * 
+ * Logging thread only checks the level and queues the record in its own buffer, nothing is formatted or written by it.
+ * Log writer thread collects records of all buffers, in order of time, and writes them to the console (SimpleAcceptUtility.getLogger())
+ * and, if configured, to the log file of the run (one JSON object per line, with time, level, thread, test data file, message and exception).
+ * 
+ * Stack trace of the same exception (type and place it is thrown from) is written only given number of times,
+ * later ones are written as one line, so that a failing test data file does not flood the log.
+ * If writer falls behind, records over the buffer limit are dropped and counted.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptLog {
+	
+	static final String LOG_FILE_EXT = ".log";
+	
+	private static final int DEFAULT_STACK_TRACE_LIMIT = 3;
+	private static final int MAX_BUFFERED_RECORDS = 10000;
+	private static final long WRITE_INTERVAL_MILLIS = 50;
+	
+	private final Level level;
+	private final int stackTraceLimit;
+	private final File logFile;
+	private final ThreadLocal<Buffer> buffer = new ThreadLocal<Buffer>();
+	private final List<Buffer> buffers = new CopyOnWriteArrayList<Buffer>();
+	private final AtomicLong droppedRecords = new AtomicLong();
+	/* Used by writer thread only. */
+	private final Map<String, Integer> stackTraces = new HashMap<String, Integer>();
+	private int suppressedStackTraces = 0;
+	private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+	private Writer fileWriter;
+	private final Thread writerThread;
+	private volatile boolean isClosed = false;
+	
+	/**
+	 * @param level records below this level are ignored
+	 * @param stackTraceLimit number of times stack trace of the same exception is written
+	 * @param logFile can be null, log is written to the console only then
+	 */
+	SimpleAcceptLog(final Level level, final int stackTraceLimit, final File logFile) {
+		this.level = level;
+		this.stackTraceLimit = stackTraceLimit;
+		this.logFile = logFile;
+		this.writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!isClosed) {
+					write();
+					try {
+						Thread.sleep(WRITE_INTERVAL_MILLIS);
+					} catch (final InterruptedException e) {
+						/* Closed, remaining records are written below. */
+					}
+				}
+				write();
+			}
+		}, "SimpleAccept-Log-Writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+	
+	/**
+	 * Creates log of a run as configured. Log file is created in configured folder (simpleaccept.processing.log.location),
+	 * named as the result directory of the run.
+	 * 
+	 * @param config
+	 * @param resultDir
+	 * @return log, to be closed at the end of the run
+	 */
+	static SimpleAcceptLog create(final SimpleAcceptConfig config, final File resultDir) {
+		final String location = config.getProperty(SimpleAcceptUtility.PROCESSING_LOG_LOCATION, false);
+		final String level = config.getProperty(SimpleAcceptUtility.LOG_LEVEL, false);
+		final Level logLevel;
+		try {
+			logLevel = (level == null || level.trim().isEmpty()) ? Level.INFO : Level.parse(level.trim().toUpperCase());
+		} catch (final IllegalArgumentException e) {
+			throw new RuntimeException("Invalid log level " + level + ". Expected : SEVERE / WARNING / INFO / FINE / ALL", e);
+		}
+		return new SimpleAcceptLog(logLevel, config.getIntProperty(SimpleAcceptUtility.LOG_STACK_TRACE_LIMIT, DEFAULT_STACK_TRACE_LIMIT),
+				(location == null || location.trim().isEmpty()) ? null : new File(location.trim(), resultDir.getName() + LOG_FILE_EXT));
+	}
+	
+	/**
+	 * Returns log used outside of a run (standalone processing, summary writing etc.), writing to the console only.
+	 * 
+	 * @return default log, never closed
+	 */
+	static SimpleAcceptLog getDefault() {
+		return DefaultHolder.LOG;
+	}
+	
+	/**
+	 * Checks level before anything is prepared for logging.
+	 * 
+	 * @param recordLevel
+	 * @return true if records of given level are logged
+	 */
+	boolean isLoggable(final Level recordLevel) {
+		return recordLevel.intValue() >= level.intValue() && level != Level.OFF;
+	}
+	
+	/**
+	 * Queues given record for writing.
+	 * 
+	 * @param recordLevel
+	 * @param testDataFileName test data file the record is about, can be null
+	 * @param message
+	 * @param thrown can be null
+	 */
+	void log(final Level recordLevel, final String testDataFileName, final String message, final Throwable thrown) {
+		if (!isLoggable(recordLevel))
+			return;
+		Buffer threadBuffer = buffer.get();
+		if (threadBuffer == null) {
+			threadBuffer = new Buffer(Thread.currentThread());
+			buffer.set(threadBuffer);
+			buffers.add(threadBuffer);
+		}
+		if (threadBuffer.size.get() >= MAX_BUFFERED_RECORDS) {
+			droppedRecords.incrementAndGet();
+			return;
+		}
+		threadBuffer.size.incrementAndGet();
+		threadBuffer.records.add(new Record(recordLevel, threadBuffer.threadName, testDataFileName, message, thrown));
+	}
+	
+	void warning(final String testDataFileName, final String message, final Throwable thrown) {
+		log(Level.WARNING, testDataFileName, message, thrown);
+	}
+	
+	void severe(final String testDataFileName, final String message, final Throwable thrown) {
+		log(Level.SEVERE, testDataFileName, message, thrown);
+	}
+	
+	/**
+	 * @return log file of the run, null if there is none
+	 */
+	File getLogFile() {
+		return logFile;
+	}
+	
+	/**
+	 * Writes remaining records and closes log file.
+	 */
+	void close() {
+		isClosed = true;
+		writerThread.interrupt();
+		try {
+			writerThread.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Writes records of all buffers in order of time. Called by writer thread only.
+	 */
+	private void write() {
+		final List<Record> records = new ArrayList<Record>();
+		for (Buffer threadBuffer : buffers) {
+			/* Buffer of finished thread is dropped once written. */
+			final boolean isFinished = !threadBuffer.thread.isAlive();
+			Record record;
+			while ((record = threadBuffer.records.poll()) != null) {
+				threadBuffer.size.decrementAndGet();
+				records.add(record);
+			}
+			if (isFinished)
+				buffers.remove(threadBuffer);
+		}
+		final long dropped = droppedRecords.getAndSet(0);
+		if (dropped > 0)
+			records.add(new Record(Level.WARNING, Thread.currentThread().getName(), null, dropped + " log records dropped, logging is too slow.", null));
+		if (records.isEmpty() && !isClosed)
+			return;
+		Collections.sort(records, new Comparator<Record>() {
+			@Override
+			public int compare(final Record record1, final Record record2) {
+				return (record1.nanos < record2.nanos) ? -1 : ((record1.nanos == record2.nanos) ? 0 : 1);
+			}
+		});
+		for (Record record : records)
+			write(record);
+		if (isClosed && suppressedStackTraces > 0) {
+			write(new Record(Level.INFO, Thread.currentThread().getName(), null,
+					suppressedStackTraces + " repeated stack traces were not written.", null));
+			suppressedStackTraces = 0;
+		}
+		try {
+			if (fileWriter != null) {
+				fileWriter.flush();
+				if (isClosed) {
+					fileWriter.close();
+					fileWriter = null;
+				}
+			}
+		} catch (final IOException e) {
+			SimpleAcceptUtility.getLogger().warning("Cannot write log file " + logFile + " : " + e);
+		}
+	}
+	
+	/**
+	 * Writes given record to the console and log file.
+	 * 
+	 * @param record
+	 */
+	private void write(final Record record) {
+		boolean isStackTraceWritten = record.thrown != null;
+		if (record.thrown != null) {
+			final String key = getStackTraceKey(record.thrown);
+			final Integer count = stackTraces.get(key);
+			stackTraces.put(key, (count == null) ? 1 : count + 1);
+			if (count != null && count >= stackTraceLimit) {
+				isStackTraceWritten = false;
+				suppressedStackTraces++;
+			}
+		}
+		final String message = (record.thrown != null && !isStackTraceWritten) ? record.message + " (" + record.thrown + ")" : record.message;
+		
+		final LogRecord logRecord = new LogRecord(record.level, message);
+		logRecord.setInstant(Instant.ofEpochMilli(record.millis));
+		logRecord.setLoggerName(SimpleAcceptUtility.getLogger().getName());
+		logRecord.setSourceClassName(record.threadName);
+		logRecord.setSourceMethodName((record.testDataFileName != null) ? record.testDataFileName : "");
+		if (isStackTraceWritten)
+			logRecord.setThrown(record.thrown);
+		SimpleAcceptUtility.getLogger().log(logRecord);
+		
+		if (logFile == null)
+			return;
+		try {
+			if (fileWriter == null) {
+				logFile.getAbsoluteFile().getParentFile().mkdirs();
+				fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8));
+			}
+			final StringBuilder line = new StringBuilder("{");
+			line.append("\"time\":").append(SimpleAcceptUtility.toJsonString(timeFormat.format(new Date(record.millis))));
+			line.append(",\"level\":").append(SimpleAcceptUtility.toJsonString(record.level.getName()));
+			line.append(",\"thread\":").append(SimpleAcceptUtility.toJsonString(record.threadName));
+			if (record.testDataFileName != null)
+				line.append(",\"file\":").append(SimpleAcceptUtility.toJsonString(record.testDataFileName));
+			line.append(",\"message\":").append(SimpleAcceptUtility.toJsonString(message));
+			if (record.thrown != null)
+				line.append(",\"exception\":").append(SimpleAcceptUtility.toJsonString(record.thrown.toString()));
+			if (isStackTraceWritten) {
+				final StringWriter stackTrace = new StringWriter();
+				record.thrown.printStackTrace(new PrintWriter(stackTrace));
+				line.append(",\"stackTrace\":").append(SimpleAcceptUtility.toJsonString(stackTrace.toString()));
+			}
+			fileWriter.write(line.append("}\n").toString());
+		} catch (final IOException e) {
+			SimpleAcceptUtility.getLogger().warning("Cannot write log file " + logFile + " : " + e);
+		}
+	}
+	
+	/**
+	 * @param thrown
+	 * @return identity of the exception, its type and place it is thrown from, including causes
+	 */
+	private static String getStackTraceKey(final Throwable thrown) {
+		final StringBuilder key = new StringBuilder();
+		for (Throwable cause = thrown; cause != null && key.length() < 4096; cause = cause.getCause()) {
+			key.append(cause.getClass().getName());
+			if (cause.getStackTrace().length > 0)
+				key.append('@').append(cause.getStackTrace()[0]);
+			key.append(';');
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Records queued by one thread, written by writer thread.
+	 */
+	private static class Buffer {
+		final Thread thread;
+		final String threadName;
+		final ConcurrentLinkedQueue<Record> records = new ConcurrentLinkedQueue<Record>();
+		final AtomicInteger size = new AtomicInteger();
+		
+		Buffer(final Thread thread) {
+			this.thread = thread;
+			this.threadName = thread.getName();
+		}
+	}
+	
+	private static class Record {
+		final long millis = System.currentTimeMillis();
+		final long nanos = System.nanoTime();
+		final Level level;
+		final String threadName;
+		final String testDataFileName;
+		final String message;
+		final Throwable thrown;
+		
+		Record(final Level level, final String threadName, final String testDataFileName, final String message, final Throwable thrown) {
+			this.level = level;
+			this.threadName = threadName;
+			this.testDataFileName = testDataFileName;
+			this.message = message;
+			this.thrown = thrown;
+		}
+	}
+	
+	/**
+	 * Holds default log, so that its writer thread is started only when something is logged outside of a run.
+	 */
+	private static class DefaultHolder {
+		private static final SimpleAcceptLog LOG = new SimpleAcceptLog(Level.INFO, DEFAULT_STACK_TRACE_LIMIT, null);
+		static {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					LOG.close();
+				}
+			}, "SimpleAccept-Log-Shutdown"));
+		}
+	}
+}
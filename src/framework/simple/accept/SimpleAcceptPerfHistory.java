@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Execution time history of test rows and test files, kept across runs in a binary file
+ * (SimpleAccept.history) in test data folder.
+ * 
+ * For every row / file, execution times of last runs (history size) form the baseline.
+ * Time of current run is flagged as regression if it is more than given number of standard deviations
+ * (sigma) above the baseline mean, and slower than the mean by at least given minimum.
+ * 
+ * Rows are identified by test data file name and row content (and its occurrence, for duplicate rows).
+ * Only passed rows / files are recorded.
+ * 
+ * File format : magic, version, run number, entry count and per entry...
+ * key (64 bit hash), run number it was last seen in, sample count and samples (micro seconds, oldest first).
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptPerfHistory {
+	
+	static final String HISTORY_FILE_NAME = "SimpleAccept.history";
+	static final String PERF_NEW = "New";
+	static final String PERF_OK = "OK";
+	static final String PERF_REGRESSED = "Regressed";
+	
+	private static final int MAGIC = 0x53415048;
+	private static final short VERSION = 1;
+	/* Baseline with less samples than this is not considered. */
+	private static final int MIN_SAMPLES = 3;
+	/* Rows / files not executed in this many runs are dropped from history. */
+	private static final int MAX_IDLE_RUNS = 100;
+	/* Runs of the same JVM using the same history file are merged one after the other. */
+	private static final Object SAVE_LOCK = new Object();
+	
+	private final File file;
+	private final int size;
+	private final double sigma;
+	private final long minRegressionMicros;
+	private final Map<Long, Entry> baseline;
+	private final Map<Long, Integer> current = new ConcurrentHashMap<Long, Integer>();
+	
+	/**
+	 * @param dataFolder test data folder, history file is kept in it
+	 * @param size number of past runs forming the baseline
+	 * @param sigma number of standard deviations above baseline mean considered regression
+	 * @param minRegressionMillis minimum slow down considered regression
+	 */
+	public SimpleAcceptPerfHistory(final File dataFolder, final int size, final double sigma, final int minRegressionMillis) {
+		this.file = new File(dataFolder, HISTORY_FILE_NAME);
+		this.size = size;
+		this.sigma = sigma;
+		this.minRegressionMicros = TimeUnit.MILLISECONDS.toMicros(minRegressionMillis);
+		final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+		synchronized (SAVE_LOCK) {
+			read(entries);
+		}
+		this.baseline = entries;
+	}
+	
+	/**
+	 * Records execution time of current run and compares it with the baseline.
+	 * 
+	 * @param key row / file identity
+	 * @param nanos execution time
+	 * @return PERF_NEW if there is not enough history, PERF_OK, or PERF_REGRESSED followed by the baseline
+	 */
+	String record(final String key, final long nanos) {
+		final long hash = hash(key);
+		final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		current.put(hash, (int) Math.min(Integer.MAX_VALUE, micros));
+		
+		final Entry entry = baseline.get(hash);
+		if (entry == null || entry.samples.length < MIN_SAMPLES)
+			return PERF_NEW;
+		double mean = 0;
+		for (int sample : entry.samples)
+			mean += sample;
+		mean /= entry.samples.length;
+		double variance = 0;
+		for (int sample : entry.samples)
+			variance += (sample - mean) * (sample - mean);
+		final double stdDev = Math.sqrt(variance / (entry.samples.length - 1));
+		
+		if (micros > mean + sigma * stdDev && micros - mean >= minRegressionMicros) {
+			/* No commas, value is a report column. */
+			return String.format(Locale.ENGLISH, "%s (baseline %.1f ms +- %.1f ms over %d runs)",
+					PERF_REGRESSED, mean / 1000, stdDev / 1000, entry.samples.length);
+		}
+		return PERF_OK;
+	}
+	
+	/**
+	 * Returns mean execution time of given row / file over its history.
+	 * 
+	 * @param key row / file identity
+	 * @return mean in micro seconds, -1 if there is no history
+	 */
+	long getBaselineMicros(final String key) {
+		final Entry entry = baseline.get(hash(key));
+		if (entry == null || entry.samples.length == 0)
+			return -1;
+		long total = 0;
+		for (int sample : entry.samples)
+			total += sample;
+		return total / entry.samples.length;
+	}
+	
+	/**
+	 * Adds times recorded in current run to the history file.
+	 * History file is read again, so that runs finished meanwhile are not lost.
+	 * 
+	 * @throws IOException
+	 */
+	void save() throws IOException {
+		synchronized (SAVE_LOCK) {
+			final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+			final int run = read(entries) + 1;
+			for (Map.Entry<Long, Integer> sample : current.entrySet()) {
+				final Entry entry = entries.get(sample.getKey());
+				final int[] oldSamples = (entry != null) ? entry.samples : new int[0];
+				final int kept = Math.min(oldSamples.length, size - 1);
+				final int[] samples = new int[kept + 1];
+				System.arraycopy(oldSamples, oldSamples.length - kept, samples, 0, kept);
+				samples[kept] = sample.getValue();
+				entries.put(sample.getKey(), new Entry(run, samples));
+			}
+			for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+				if (run - iterator.next().lastRun > MAX_IDLE_RUNS)
+					iterator.remove();
+			}
+			
+			final File tempFile = new File(file.getPath() + ".tmp");
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				out.writeInt(run);
+				out.writeInt(entries.size());
+				for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+					out.writeLong(entry.getKey());
+					out.writeInt(entry.getValue().lastRun);
+					out.writeByte(entry.getValue().samples.length);
+					for (int sample : entry.getValue().samples)
+						out.writeInt(sample);
+				}
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+	
+	/**
+	 * Reads history file into given map. Missing or unreadable file is considered as empty history.
+	 * 
+	 * @param entries
+	 * @return number of last run recorded in the file
+	 */
+	private int read(final Map<Long, Entry> entries) {
+		if (!file.isFile())
+			return 0;
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC || in.readShort() != VERSION)
+					throw new IOException("Unknown file format");
+				final int run = in.readInt();
+				final int count = in.readInt();
+				for (int i=0; i<count; i++) {
+					final long key = in.readLong();
+					final int lastRun = in.readInt();
+					final int[] samples = new int[in.readUnsignedByte()];
+					for (int j=0; j<samples.length; j++)
+						samples[j] = in.readInt();
+					entries.put(key, new Entry(lastRun, samples));
+				}
+				return run;
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			SimpleAcceptUtility.getLogger().warning("Ignoring execution time history " + file + " : " + e);
+			entries.clear();
+			return 0;
+		}
+	}
+	
+	/**
+	 * 64 bit FNV-1a hash of given key.
+	 * 
+	 * @param key
+	 * @return hash
+	 */
+	private static long hash(final String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i=0; i<key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	/**
+	 * History of one row / file.
+	 */
+	private static class Entry {
+		final int lastRun;
+		final int[] samples;
+		
+		Entry(final int lastRun, final int[] samples) {
+			this.lastRun = lastRun;
+			this.samples = samples;
+		}
+	}
+}
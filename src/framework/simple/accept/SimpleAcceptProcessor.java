@@ -15,13 +15,21 @@
  */
 package framework.simple.accept;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 /**
  * Copyright 2016, Kashyap Deshpande.
@@ -32,8 +40,10 @@ import java.util.Map;
  */
 public class SimpleAcceptProcessor {
 
-	private static final String TEST_CLASS = "TestClass";
-	private static final String TEST_PARAMS = "TestParams";
+	static final String TEST_CLASS = "TestClass";
+	static final String TEST_PARAMS = "TestParams";
+	private static final String BATCH_SIZE = "BatchSize";
+	static final String DEPENDS_ON = "DependsOn";
 	private static final String CSV_DELIM = ",";
 	static final String SPECIAL_PARAM_DATE = "{today}";
 	static final String SPECIAL_PARAM_ANY = "?";
@@ -43,15 +53,94 @@ public class SimpleAcceptProcessor {
 	
 	private static final String TEST_RESULT_PASSED = "Passed.";
 	private static final String TEST_RESULT_FAILED = "Failed.";
+	private static final String TEST_RESULT_CANCELLED = "Cancelled.";
+	
+	private static final int DEFAULT_BATCH_SIZE = 100;
+	private static final int DEFAULT_ASYNC_INFLIGHT_COUNT = 16;
 	
 	private final File testDataFile;
+	private final SimpleAcceptConfig config;
 	private final File testResultFile;
-	private String individualTestResult;
+	/* Report is a fragment of consolidated report. */
+	private final boolean isFragment;
+	private final SimpleAcceptResultBean bean;
+	private final SimpleAcceptWatchdog watchdog;
+	private final SimpleAcceptInstancePool instancePool;
+	private final SimpleAcceptPerfHistory perfHistory;
+	private final SimpleAcceptLog log;
+	/* Can be null, workers are not sampled then. */
+	private final SimpleAcceptProfiler profiler;
+	/* Test rows of the file tested by this shard, null means all. */
+	private final SimpleAcceptShard.RowRange rowRange;
+	private final int rowTimeoutMillis;
+	private final int defaultBatchSize;
+	private final int asyncInFlightCount;
+	private final String fixtureMode;
+	/* Row outcomes of this run if it is journaled, and of previous run if only rows not passed there are executed (null otherwise). */
+	private final File outcomesFile;
+	private final File previousOutcomesFile;
+	/* Row outcomes of stopped run, if this run is resumed (refer SimpleAcceptJournal). */
+	private final File resumeOutcomesFile;
+	private final SimpleAcceptJournal journal;
+	private final int syncMillis;
+	private SimpleAcceptRowOutcomes.Writer outcomes;
+	private SimpleAcceptRowOutcomes.Reader previousOutcomes;
+	private SimpleAcceptRowOutcomes.Reader resumeOutcomes;
+	/* TestParams line of rows being tested. */
+	private String paramsLine;
+	/* Instances of test class holding bound rows of batch / async test class, reused once the row is reported. */
+	private final Deque<SimpleAcceptBase> freeRowInstances = new ArrayDeque<SimpleAcceptBase>();
+	/* Number of times a row with same content has occurred so far, to tell duplicate rows apart in execution time history. */
+	private final Map<String, Integer> rowOccurrences = new HashMap<String, Integer>();
 	private String consolidatedTestResult = TEST_RESULT_PASSED;
+	/* Executed rows of the test class, for live progress. Null without result bean. */
+	private LongAdder classRowCounter;
+	/* Resource accounting of rows, null if not configured. Usage of the test class is null without result bean. */
+	private final SimpleAcceptResourceMeter resourceMeter;
+	private SimpleAcceptResourceMeter.Usage classUsage;
+	private SimpleAcceptResourceMeter.Usage groupUsage;
+	/* Instance of test class the rows are compared with (refer SimpleAcceptComparison), null if not compared.
+	 * Comparison of the pair of test classes is null without result bean. */
+	private SimpleAcceptBase comparedInstance;
+	private SimpleAcceptComparison.Summary comparison;
+	/* Stratified sampling of test rows, null if all rows are tested. */
+	private final SimpleAcceptSampler sampler;
 	
 	public SimpleAcceptProcessor(final File testDataFile, final File resultDir) {
+		this(testDataFile, SimpleAcceptContext.standalone(resultDir, null));
+	}
+	
+	/**
+	 * @param testDataFile
+	 * @param context run this file belongs to. Its bean is used for failure budget (fail-fast) accounting,
+	 * 		its watchdog enforces row deadline and its pool provides test class instances; each of them can be null.
+	 */
+	SimpleAcceptProcessor(final File testDataFile, final SimpleAcceptContext context) {
+		final SimpleAcceptConfig config = context.config;
 		this.testDataFile = testDataFile;
-		this.testResultFile = new File(SimpleAcceptUtility.getReportFileName(resultDir.getAbsolutePath(), testDataFile.getName()));
+		this.config = config;
+		final String reportName = context.getReportName(testDataFile);
+		this.testResultFile = (context.report != null) ? context.report.getFragmentFile(reportName)
+				: new File(SimpleAcceptUtility.getReportFileName(config, context.resultDir.getAbsolutePath(), reportName));
+		this.isFragment = context.report != null;
+		this.journal = context.journal;
+		this.outcomesFile = (journal != null) ? SimpleAcceptRowOutcomes.getFile(context.resultDir, reportName) : null;
+		this.previousOutcomesFile = (context.rerunDir != null) ? SimpleAcceptRowOutcomes.getFile(context.rerunDir, reportName) : null;
+		this.resumeOutcomesFile = (outcomesFile != null) ? new File(outcomesFile.getPath() + SimpleAcceptJournal.RESUME_FILE_EXT) : null;
+		this.syncMillis = (journal != null) ? SimpleAcceptJournal.getSyncMillis(config) : 0;
+		this.rowRange = (context.shard != null) ? context.shard.getRowRange(testDataFile) : null;
+		this.bean = context.bean;
+		this.watchdog = context.watchdog;
+		this.instancePool = (context.instancePool != null) ? context.instancePool : new SimpleAcceptInstancePool(SimpleAcceptInstancePool.POOLING_NONE, context.log);
+		this.perfHistory = context.perfHistory;
+		this.log = context.log;
+		this.profiler = context.profiler;
+		this.rowTimeoutMillis = config.getIntProperty(SimpleAcceptUtility.ROW_TIMEOUT_MILLIS, 0);
+		this.defaultBatchSize = config.getIntProperty(SimpleAcceptUtility.BATCH_SIZE, DEFAULT_BATCH_SIZE);
+		this.asyncInFlightCount = Math.max(1, config.getIntProperty(SimpleAcceptUtility.ASYNC_INFLIGHT_COUNT, DEFAULT_ASYNC_INFLIGHT_COUNT));
+		this.fixtureMode = SimpleAcceptFixture.getMode(config);
+		this.resourceMeter = SimpleAcceptResourceMeter.create(config);
+		this.sampler = SimpleAcceptSampler.create(config);
 	}
 	
 	/**
@@ -62,61 +151,363 @@ public class SimpleAcceptProcessor {
 			processFile();
 		} catch (final Exception e) {
 			consolidatedTestResult = TEST_RESULT_FAILED;
-			e.printStackTrace();
+			log.severe(testDataFile.getName(), "Exception occurred while processing test data file.", e);
 		}
 	}
 	
 	/**
 	 * Processes file and delegates test execution.
+	 * Also calls life cycle methods (before / after file and group) of test class instance.
+	 * 
+	 * Rows of batch test class (SimpleAcceptBatchBase) are collected into blocks of batch size,
+	 * executed block by block and reported in order of test data file.
+	 * Rows of async test class (SimpleAcceptAsyncBase) are kept in flight, up to configured count,
+	 * and reported in order of test data file as they complete.
 	 * 
 	 * @throws Exception
 	 */
 	public void processFile() throws Exception {
 		
-		BufferedReader dataReader = null;
+		SimpleAcceptDataReader dataReader = null;
 		SimpleAcceptWriter resultWriter = null;
 		String line = null;
+		SimpleAcceptBase testClassInstance = null;
+		boolean isFileStarted = false;
+		boolean isGroupStarted = false;
+		final Map<String, List<String>> ioParams = new HashMap<String, List<String>>();
+		final List<SimpleAcceptRow> pendingRows = new ArrayList<SimpleAcceptRow>();
+		int batchSize = defaultBatchSize;
+		int pendingTestRows = 0;
+		long testRowIndex = 0;
+		SimpleAcceptSampler.FileSample sample = null;
 		
 		try {
-			dataReader = new BufferedReader(new FileReader(testDataFile));
-			resultWriter = SimpleAcceptWriter.getInstace(testResultFile);
+			dataReader = SimpleAcceptFixture.open(testDataFile, fixtureMode);
+			resultWriter = isFragment ? SimpleAcceptWriter.getFragmentInstance(testResultFile)
+					: SimpleAcceptWriter.getInstace(testResultFile, config);
+			/* Outcomes of stopped run are read before they get overwritten. */
+			resumeOutcomes = SimpleAcceptRowOutcomes.Reader.open(resumeOutcomesFile);
+			outcomes = (outcomesFile != null) ? new SimpleAcceptRowOutcomes.Writer(outcomesFile, syncMillis) : null;
+			previousOutcomes = SimpleAcceptRowOutcomes.Reader.open(previousOutcomesFile);
+			sample = (sampler != null) ? sampler.open(testDataFile, rowRange) : null;
 			
 			line = dataReader.readLine();
-			final SimpleAcceptBase testClassInstance = getTestClassInstance(line);
+			testClassInstance = getTestClassInstance(line);
+			if (bean != null)
+				classRowCounter = bean.getClassRowCounter(testClassInstance.getClass().getName());
+			if (bean != null && resourceMeter != null)
+				classUsage = bean.getClassUsage(testClassInstance.getClass().getName());
+			if (profiler != null)
+				profiler.enter(testDataFile.getName(), testClassInstance.getClass().getName());
+			testClassInstance.beforeFile(testDataFile.getName());
+			isFileStarted = true;
 			resultWriter.write(line, getLineType(line));
+			/* Configured test class to compare with takes precedence over CompareWith line. */
+			final String comparedClassName = SimpleAcceptComparison.getConfiguredClassName(config, testClassInstance.getClass().getName());
+			if (comparedClassName != null)
+				startComparison(comparedClassName, testClassInstance);
+			/* Compared rows are executed row by row, so that their execution times are compared. */
+			boolean isBatch = comparedInstance == null && testClassInstance instanceof SimpleAcceptBatchBase;
+			boolean isAsync = comparedInstance == null && testClassInstance instanceof SimpleAcceptAsyncBase;
 			
-			final Map<String, List<String>> ioParams = new HashMap<String, List<String>>();
 			line = dataReader.readLine();
 			while (line != null) {
-				final String[] ioValues = line.split(CSV_DELIM);
-				if (!canSkip(line, ioValues)) {
-					if (ioValues[0].equals(TEST_PARAMS)) {
-						prepareInputOutputParams(ioValues, ioParams);
-						line = SimpleAcceptUtility.arrayToString(ioValues) + CSV_DELIM + "Result";
-					} else {
-						executeTesting(testClassInstance, ioParams, ioValues);
-						line = CSV_DELIM + SimpleAcceptUtility.arrayToString(ioValues) + CSV_DELIM + individualTestResult;
+				/* File deadline, enforced by watchdog, checked before every line. */
+				final SimpleAcceptWatchdog.Deadline fileDeadline = (watchdog != null) ? watchdog.current() : null;
+				if (fileDeadline != null && (fileDeadline.isExpired() || fileDeadline.isAbandoned())) {
+					consolidatedTestResult = TEST_RESULT_FAILED;
+					logErrorMsg(resultWriter, pendingRows.isEmpty() ? line : pendingRows.get(0).line,
+							"Testing timed out after " + fileDeadline.getElapsedMillis() + " ms. Deadline is " + fileDeadline.getTimeoutMillis() + " ms.");
+					break;
+				}
+				/* Cooperative cancellation (fail-fast), checked before every line. */
+				if (isCancellationRequested()) {
+					/* File which has already failed is still reported as failed. */
+					if (!TEST_RESULT_FAILED.equals(consolidatedTestResult))
+						consolidatedTestResult = TEST_RESULT_CANCELLED;
+					logErrorMsg(resultWriter, pendingRows.isEmpty() ? line : pendingRows.get(0).line,
+							"Testing cancelled. " + (bean != null && bean.getCancelReason() != null ? bean.getCancelReason() : ""));
+					break;
+				}
+				/* Test rows read from fixture are already split. */
+				final String[] ioValues = (dataReader.getValues() != null) ? dataReader.getValues() : line.split(CSV_DELIM);
+				if (canSkip(line, ioValues)) {
+					/* Kept in order with rows waiting for their block to be executed. */
+					if (pendingRows.isEmpty())
+						resultWriter.write(line, getLineType(line));
+					else
+						pendingRows.add(new SimpleAcceptRow(line, null));
+				} else if (ioValues[0].equals(TEST_PARAMS)) {
+					completePendingRows(testClassInstance, ioParams, pendingRows, resultWriter);
+					writeGroupUsage(resultWriter);
+					pendingTestRows = 0;
+					if (isGroupStarted) {
+						isGroupStarted = false;
+						testClassInstance.afterGroup(ioParams.get(INPUT_PARAM), ioParams.get(OUTPUT_PARAM));
+						if (comparedInstance != null)
+							comparedInstance.afterGroup(ioParams.get(INPUT_PARAM), ioParams.get(OUTPUT_PARAM));
+					}
+					prepareInputOutputParams(ioValues, ioParams);
+					paramsLine = line;
+					if (sample != null)
+						sample.nextGroup();
+					testClassInstance.beforeGroup(ioParams.get(INPUT_PARAM), ioParams.get(OUTPUT_PARAM));
+					if (comparedInstance != null)
+						comparedInstance.beforeGroup(ioParams.get(INPUT_PARAM), ioParams.get(OUTPUT_PARAM));
+					isGroupStarted = true;
+					line = SimpleAcceptUtility.arrayToString(ioValues) + CSV_DELIM + "Result"
+							+ ((perfHistory != null) ? CSV_DELIM + "Millis" + CSV_DELIM + "Perf" : "")
+							+ ((resourceMeter != null) ? CSV_DELIM + SimpleAcceptResourceMeter.COLUMNS : "")
+							+ ((comparedInstance != null) ? CSV_DELIM + SimpleAcceptComparison.COLUMNS : "");
+					resultWriter.write(line, getLineType(line));
+				} else if (ioValues[0].equals(BATCH_SIZE)) {
+					completePendingRows(testClassInstance, ioParams, pendingRows, resultWriter);
+					pendingTestRows = 0;
+					batchSize = getBatchSize(ioValues);
+					resultWriter.write(line, SimpleAcceptWriter.LINE_TYPE_FILE_HEADER);
+				} else if (ioValues[0].equals(DEPENDS_ON)) {
+					/* Dependencies are already resolved by the scheduler. */
+					resultWriter.write(line, SimpleAcceptWriter.LINE_TYPE_FILE_HEADER);
+				} else if (ioValues[0].equals(SimpleAcceptComparison.COMPARE_WITH)) {
+					if (ioValues.length != 2 || ioValues[1].trim().isEmpty() || isGroupStarted)
+						throw new Exception("Invalid " + SimpleAcceptComparison.COMPARE_WITH + ". Expected format, before first " + TEST_PARAMS + " : "
+								+ SimpleAcceptComparison.COMPARE_WITH + ",Fully-Qualified-Test-Class-Name");
+					if (comparedInstance == null) {
+						startComparison(ioValues[1].trim(), testClassInstance);
+						isBatch = false;
+						isAsync = false;
 					}
+					resultWriter.write(line, SimpleAcceptWriter.LINE_TYPE_FILE_HEADER);
+				} else if (!isInRowRange(testRowIndex++)) {
+					/* Row is tested by another shard. */
+				} else if (sample != null && !sample.select()) {
+					/* Row of this shard is not in the sample. */
+				} else if (carryForward(testRowIndex - 1, line, pendingRows, resultWriter)) {
+					/* Row is completed by stopped run, or has passed in previous run. */
+				} else if (isBatch) {
+					final SimpleAcceptRow row = new SimpleAcceptRow(line, ioValues, dataReader.isGenerated(), dataReader.getCells());
+					row.index = testRowIndex - 1;
+					row.instance = takeRowInstance(testClassInstance);
+					try {
+						bindInputs(ioParams, row);
+					} catch (final Exception e) {
+						/* Rows before this one are still executed and reported. */
+						executeBatch(testClassInstance, ioParams, pendingRows, resultWriter);
+						if (!isStoppedByCancellation(e))
+							recordFailedRow();
+						throw e;
+					}
+					pendingRows.add(row);
+					pendingTestRows++;
+					if (pendingTestRows >= batchSize) {
+						executeBatch(testClassInstance, ioParams, pendingRows, resultWriter);
+						pendingTestRows = 0;
+					}
+				} else if (isAsync) {
+					final SimpleAcceptRow row = new SimpleAcceptRow(line, ioValues, dataReader.isGenerated(), dataReader.getCells());
+					row.index = testRowIndex - 1;
+					row.instance = takeRowInstance(testClassInstance);
+					try {
+						bindInputs(ioParams, row);
+					} catch (final Exception e) {
+						/* Rows before this one are still completed and reported. */
+						completeAsync(ioParams, pendingRows, resultWriter, true);
+						if (!isStoppedByCancellation(e))
+							recordFailedRow();
+						throw e;
+					}
+					submitAsync(testClassInstance, row);
+					pendingRows.add(row);
+					pendingTestRows++;
+					if (pendingTestRows >= asyncInFlightCount)
+						pendingTestRows -= completeAsync(ioParams, pendingRows, resultWriter, false);
+				} else {
+					final SimpleAcceptRow row = new SimpleAcceptRow(line, ioValues, dataReader.isGenerated(), dataReader.getCells());
+					row.index = testRowIndex - 1;
+					row.instance = testClassInstance;
+					try {
+						executeTesting(ioParams, row);
+						if (comparedInstance != null)
+							executeCompared(ioParams, row);
+					} catch (final Exception e) {
+						if (!isStoppedByCancellation(e))
+							recordFailedRow();
+						throw e;
+					}
+					writeRow(resultWriter, row);
 				}
 				
-				resultWriter.write(line, getLineType(line));
 				line = dataReader.readLine();
 			}
+			if (line == null) {
+				completePendingRows(testClassInstance, ioParams, pendingRows, resultWriter);
+				writeGroupUsage(resultWriter);
+			}
 		} catch (final Exception e) {
-			e.printStackTrace();
-			consolidatedTestResult = TEST_RESULT_FAILED;
+			/* Exceptions of test rows are logged here, with their causes. */
+			log.warning(testDataFile.getName(), e.getMessage(), e);
+			/* Failures caused by interrupting the worker (fail-fast) are reported as cancellation. */
+			consolidatedTestResult = isStoppedByCancellation(e) ? TEST_RESULT_CANCELLED : TEST_RESULT_FAILED;
 			logErrorMsg(resultWriter, line, e.getMessage());
 		} finally {
+			if (profiler != null)
+				profiler.exit();
+			cancelPendingRows(pendingRows);
+			if (testClassInstance != null) {
+				finishFile(testClassInstance, ioParams, isFileStarted, isGroupStarted, resultWriter);
+				instancePool.release(testClassInstance);
+			}
+			if (comparedInstance != null) {
+				finishFile(comparedInstance, ioParams, true, isGroupStarted, resultWriter);
+				instancePool.release(comparedInstance);
+			}
 			dataReader.close();
 			resultWriter.close();
+			if (outcomes != null)
+				outcomes.close();
+			if (previousOutcomes != null)
+				previousOutcomes.close();
+			if (resumeOutcomes != null)
+				resumeOutcomes.close();
+			if (sample != null && bean != null) {
+				bean.sampleTotalRows.add(sample.getTotalRows());
+				bean.sampledRows.add(sample.getSampledRows());
+			}
+		}
+		/* Report is on disk before the file is journaled as completed, outcomes of stopped run are carried forward by now. */
+		if (syncMillis > 0)
+			SimpleAcceptJournal.sync(testResultFile);
+		if (resumeOutcomes != null)
+			resumeOutcomesFile.delete();
+	}
+	
+	/**
+	 * @param index index of a test row among test rows of the file
+	 * @return true if the row is tested by this shard
+	 */
+	private boolean isInRowRange(final long index) {
+		return rowRange == null || rowRange.contains(index);
+	}
+	
+	/**
+	 * Reports given test row as reported by stopped run, if this run is resumed and the row is completed there,
+	 * or as reported by previous run, if it has passed there (simpleaccept.rerun=failed).
+	 * Row is kept in order with rows waiting for their block to be executed.
+	 * 
+	 * @param index index of the row among test rows of the file
+	 * @param line
+	 * @param pendingRows
+	 * @param writer
+	 * @return true if row is carried forward, false if it is to be executed
+	 * @throws Exception
+	 */
+	private boolean carryForward(final long index, final String line, final List<SimpleAcceptRow> pendingRows,
+			final SimpleAcceptWriter writer) throws Exception {
+		if (resumeOutcomes == null && previousOutcomes == null)
+			return false;
+		final String hash = SimpleAcceptRowOutcomes.hash(paramsLine, line);
+		SimpleAcceptRowOutcomes.Outcome outcome = (resumeOutcomes != null) ? resumeOutcomes.get(index, hash) : null;
+		if (outcome == null && previousOutcomes != null) {
+			outcome = previousOutcomes.get(index, hash);
+			if (outcome != null && !outcome.isPassed)
+				outcome = null;
 		}
+		if (outcome == null)
+			return false;
+		final SimpleAcceptRow row = new SimpleAcceptRow(line, null);
+		row.index = index;
+		row.carriedReportLine = outcome.reportLine;
+		row.isCarriedPassed = outcome.isPassed;
+		if (pendingRows.isEmpty())
+			writeRow(writer, row);
+		else
+			pendingRows.add(row);
+		return true;
+	}
+	
+	/**
+	 * Returns batch size given by BatchSize line of test data file.
+	 * 
+	 * @param tokens
+	 * @return batch size
+	 * @throws Exception
+	 */
+	private int getBatchSize(final String[] tokens) throws Exception {
+		try {
+			final int batchSize = Integer.valueOf(tokens[1].trim());
+			if (batchSize > 0)
+				return batchSize;
+		} catch (final RuntimeException e) {
+			/* Reported below. */
+		}
+		throw new Exception("Invalid " + BATCH_SIZE + ". Expected format : " + BATCH_SIZE + ",Positive-Number");
+	}
+	
+	/**
+	 * Calls after group / after file life cycle methods of test class instance.
+	 * Failure of any of these marks the file as failed.
+	 * 
+	 * @param instance
+	 * @param ioParams
+	 * @param isFileStarted
+	 * @param isGroupStarted
+	 * @param writer
+	 * @throws Exception
+	 */
+	private void finishFile(final SimpleAcceptBase instance, final Map<String, List<String>> ioParams, final boolean isFileStarted,
+			final boolean isGroupStarted, final SimpleAcceptWriter writer) throws Exception {
+		try {
+			if (isGroupStarted)
+				instance.afterGroup(ioParams.get(INPUT_PARAM), ioParams.get(OUTPUT_PARAM));
+			if (isFileStarted)
+				instance.afterFile(testDataFile.getName());
+		} catch (final Exception e) {
+			log.warning(testDataFile.getName(), "Exception occurred while finishing test.", e);
+			consolidatedTestResult = TEST_RESULT_FAILED;
+			logErrorMsg(writer, instance.getClass().getName(), "Exception occurred while finishing test : " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Checks if testing is cancelled by exhausted failure budget.
+	 * 
+	 * @return true if processing should stop
+	 */
+	private boolean isCancellationRequested() {
+		return bean != null && bean.isCancelled();
+	}
+	
+	/**
+	 * Checks if given exception is caused by interrupting the worker once testing is cancelled. Interrupt is often
+	 * consumed by the test (e.g. InterruptedException of sleep / wait), so its cause counts as well.
+	 * 
+	 * @param e
+	 * @return true if the failure is a cancellation, not a failure of the test
+	 */
+	private boolean isStoppedByCancellation(final Throwable e) {
+		if (!isCancellationRequested())
+			return false;
+		if (Thread.currentThread().isInterrupted())
+			return true;
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof InterruptedException || cause instanceof InterruptedIOException)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Updates failure budget, if any.
+	 */
+	private void recordFailedRow() {
+		if (bean != null)
+			bean.recordFailedRow();
 	}
 	
 	/**
 	 * Returns type of given line.
 	 * Type could be...
 	 * 1. TestClass / TestClassParams
-	 * 2. Test result status
 	 * 
 	 * @param line
 	 * @return line type
@@ -128,12 +519,148 @@ public class SimpleAcceptProcessor {
 			return SimpleAcceptWriter.LINE_TYPE_FILE_HEADER;
 		else if (line.contains(TEST_PARAMS))
 			return SimpleAcceptWriter.LINE_TYPE_DATA_HEADER;
-		else if (individualTestResult.contains(TEST_RESULT_FAILED))
-			return SimpleAcceptWriter.LINE_TYPE_FAIILED;
 		else
 			return null;
 	}
 	
+	/**
+	 * Writes executed row (or any other line kept in order with rows) to the report.
+	 * Type of test row is its result status.
+	 * 
+	 * @param writer
+	 * @param row
+	 * @throws Exception
+	 */
+	private void writeRow(final SimpleAcceptWriter writer, final SimpleAcceptRow row) throws Exception {
+		if (row.carriedReportLine != null) {
+			if (!row.isCarriedPassed) {
+				consolidatedTestResult = TEST_RESULT_FAILED;
+				recordFailedRow();
+			}
+			writer.write(row.carriedReportLine, row.isCarriedPassed ? null : SimpleAcceptWriter.LINE_TYPE_FAIILED);
+			recordOutcome(row, row.isCarriedPassed, row.carriedReportLine);
+			return;
+		}
+		if (!row.isTestRow()) {
+			writer.write(row.line, getLineType(row.line));
+			return;
+		}
+		if (classRowCounter != null) {
+			classRowCounter.increment();
+			bean.executedRows.increment();
+			bean.executedRowNanos.add(row.elapsedNanos);
+		}
+		String type = null;
+		if (row.result.startsWith(TEST_RESULT_FAILED)) {
+			type = SimpleAcceptWriter.LINE_TYPE_FAIILED;
+			consolidatedTestResult = TEST_RESULT_FAILED;
+			recordFailedRow();
+		}
+		final String reportLine = CSV_DELIM + SimpleAcceptUtility.arrayToString(row.values) + CSV_DELIM + row.result + getPerfColumns(row)
+				+ getResourceColumns(row) + getComparisonColumns(row);
+		writer.write(reportLine, type);
+		recordOutcome(row, row.result.startsWith(TEST_RESULT_PASSED), reportLine);
+	}
+	
+	/**
+	 * Returns resource usage of given row as report columns, and adds it to usage of its group and test class.
+	 * 
+	 * @param row
+	 * @return columns, empty if resources are not accounted
+	 */
+	private String getResourceColumns(final SimpleAcceptRow row) {
+		if (resourceMeter == null)
+			return "";
+		if (groupUsage == null)
+			groupUsage = new SimpleAcceptResourceMeter.Usage();
+		groupUsage.add(row);
+		if (classUsage != null)
+			classUsage.add(row);
+		return CSV_DELIM + resourceMeter.getColumns(row);
+	}
+	
+	/**
+	 * Returns comparison of given row with the test class it is compared with as report columns, and adds it to comparison of the pair.
+	 * 
+	 * @param row
+	 * @return columns, empty if rows are not compared
+	 */
+	private String getComparisonColumns(final SimpleAcceptRow row) {
+		if (comparedInstance == null)
+			return "";
+		if (comparison != null)
+			comparison.add(row);
+		return CSV_DELIM + SimpleAcceptComparison.getColumns(row);
+	}
+	
+	/**
+	 * Writes resource usage of the group of rows just completed, if any of its rows was measured.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	private void writeGroupUsage(final SimpleAcceptWriter writer) throws IOException {
+		if (groupUsage != null && !groupUsage.isEmpty())
+			writer.write(SimpleAcceptResourceMeter.USAGE_LINE + CSV_DELIM + groupUsage, SimpleAcceptWriter.LINE_TYPE_FILE_HEADER);
+		groupUsage = null;
+	}
+	
+	/**
+	 * Records outcome of reported test row, for next run to re-execute only rows which have not passed.
+	 * 
+	 * @param row
+	 * @param isPassed
+	 * @param reportLine
+	 * @throws IOException
+	 */
+	private void recordOutcome(final SimpleAcceptRow row, final boolean isPassed, final String reportLine) throws IOException {
+		if (outcomes != null && row.index >= 0)
+			outcomes.record(row.index, isPassed, SimpleAcceptRowOutcomes.hash(paramsLine, row.line), reportLine);
+	}
+	
+	/**
+	 * Returns execution time and its comparison with history, as report columns of given row.
+	 * Only passed rows, not generated ones, are compared with (and recorded in) history.
+	 * 
+	 * @param row
+	 * @return columns, empty if execution times are not tracked
+	 */
+	private String getPerfColumns(final SimpleAcceptRow row) {
+		if (perfHistory == null)
+			return "";
+		/* Generated rows are not kept in history, there can be millions of them. */
+		if (row.isGenerated)
+			return CSV_DELIM + TimeUnit.NANOSECONDS.toMillis(row.elapsedNanos) + CSV_DELIM + "-";
+		Integer occurrence = rowOccurrences.get(row.line);
+		occurrence = (occurrence == null) ? 1 : occurrence + 1;
+		rowOccurrences.put(row.line, occurrence);
+		
+		String perf = "-";
+		if (row.result.startsWith(TEST_RESULT_PASSED)) {
+			perf = perfHistory.record(testDataFile.getName() + "\n" + row.line + "\n" + occurrence, row.elapsedNanos);
+			if (perf.startsWith(SimpleAcceptPerfHistory.PERF_REGRESSED) && bean != null)
+				recordPerfRegression(testDataFile.getName() + " [" + row.line + "] : "
+						+ TimeUnit.NANOSECONDS.toMillis(row.elapsedNanos) + " ms. " + perf);
+		}
+		return CSV_DELIM + TimeUnit.NANOSECONDS.toMillis(row.elapsedNanos) + CSV_DELIM + perf;
+	}
+	
+	/**
+	 * Reports performance regression of a row, and journals it for resumed run.
+	 * 
+	 * @param regression
+	 */
+	private void recordPerfRegression(final String regression) {
+		bean.perfRegressions.add(regression);
+		if (journal == null)
+			return;
+		try {
+			journal.recordPerfRegression(testDataFile.getName(), regression);
+		} catch (final IOException e) {
+			log.warning(testDataFile.getName(), "Exception occurred while journaling performance regression.", e);
+		}
+	}
+	
 	/**
 	 * Logs error message.
 	 * 
@@ -154,61 +681,405 @@ public class SimpleAcceptProcessor {
 	 * 3. Fetching output values
 	 * 4. Validating actual values against expected ones
 	 * 
+	 * @param ioParams
+	 * @param row
+	 * @throws Exception
+	 */
+	private void executeTesting(final Map<String, List<String>> ioParams, final SimpleAcceptRow row) throws Exception {
+		
+		bindInputs(ioParams, row);
+		
+		/* Execute testing on created instance, within row deadline if any. */
+		final SimpleAcceptBase instance = row.instance;
+		final SimpleAcceptWatchdog.Deadline rowDeadline = (watchdog != null && rowTimeoutMillis > 0)
+				? watchdog.start(testDataFile.getName() + " : " + row.line, rowTimeoutMillis, null) : null;
+		final long startCpuNanos = (resourceMeter != null) ? resourceMeter.getCpuNanos() : -1;
+		final long startAllocatedBytes = (resourceMeter != null) ? resourceMeter.getAllocatedBytes() : -1;
+		final long startNanos = System.nanoTime();
+		try {
+			instance.execute();
+		} catch (final Exception e) {
+			/* Exception caused by interrupting timed out test is reported as time out. */
+			if (rowDeadline == null || !rowDeadline.isExpired()) {
+				consolidatedTestResult = TEST_RESULT_FAILED;
+				throw new Exception("Exception occurred while executing test : " + instance.getClass(), e);
+			}
+		} finally {
+			row.elapsedNanos = System.nanoTime() - startNanos;
+			measureResources(row, startCpuNanos, startAllocatedBytes, 1);
+			if (rowDeadline != null)
+				rowDeadline.stop();
+		}
+		if (rowDeadline != null && rowDeadline.isExpired()) {
+			row.result = TEST_RESULT_FAILED + " Timed out after " + rowDeadline.getElapsedMillis() + " ms. Deadline is " + rowTimeoutMillis + " ms.";
+			return;
+		}
+		
+		verifyOutputs(ioParams, row);
+	}
+	
+	/**
+	 * Creates instance of test class the rows are compared with and starts the file on it.
+	 * 
+	 * @param className
+	 * @param instance instance of test class of the file
+	 * @throws Exception
+	 */
+	private void startComparison(final String className, final SimpleAcceptBase instance) throws Exception {
+		final SimpleAcceptBase compared = borrowInstance(className);
+		try {
+			compared.beforeFile(testDataFile.getName());
+		} catch (final Exception e) {
+			instancePool.release(compared);
+			throw e;
+		}
+		comparedInstance = compared;
+		if (bean != null)
+			comparison = bean.getComparison(instance.getClass().getName() + " vs " + className);
+	}
+	
+	/**
+	 * Executes given row, already executed by test class of the file, by the test class it is compared with on the same
+	 * input values, within row deadline if any, and compares their output values. Row with different output values fails.
+	 * 
+	 * @param ioParams
+	 * @param row
+	 */
+	private void executeCompared(final Map<String, List<String>> ioParams, final SimpleAcceptRow row) {
+		final SimpleAcceptRow compared = new SimpleAcceptRow(row.line, row.values, row.isGenerated, row.cells);
+		compared.instance = comparedInstance;
+		final SimpleAcceptWatchdog.Deadline rowDeadline = (watchdog != null && rowTimeoutMillis > 0)
+				? watchdog.start(testDataFile.getName() + " : " + row.line + " (" + SimpleAcceptComparison.COMPARE_WITH + ")", rowTimeoutMillis, null) : null;
+		long startNanos = 0;
+		try {
+			bindInputs(ioParams, compared);
+			/* Only execution is timed, as for test class of the file. */
+			startNanos = System.nanoTime();
+			comparedInstance.execute();
+			row.compareElapsedNanos = System.nanoTime() - startNanos;
+			row.compareResult = compareOutputs(ioParams, row.instance, comparedInstance);
+		} catch (final Exception e) {
+			if (startNanos != 0 && row.compareElapsedNanos < 0)
+				row.compareElapsedNanos = System.nanoTime() - startNanos;
+			if (rowDeadline != null && rowDeadline.isExpired()) {
+				row.compareResult = SimpleAcceptComparison.DIFFERS + " Timed out after " + rowDeadline.getElapsedMillis() + " ms.";
+			} else {
+				log.warning(testDataFile.getName(), "Exception occurred while executing compared test : " + comparedInstance.getClass() + " for [" + row.line + "]", e);
+				row.compareResult = SimpleAcceptComparison.DIFFERS + " " + e.getClass().getSimpleName() + " occurred.";
+			}
+		} finally {
+			if (rowDeadline != null)
+				rowDeadline.stop();
+		}
+		if (!SimpleAcceptComparison.SAME.equals(row.compareResult) && row.result.startsWith(TEST_RESULT_PASSED))
+			row.result = TEST_RESULT_FAILED + " " + row.compareResult;
+	}
+	
+	/**
+	 * @param ioParams
+	 * @param instance executed instance of test class of the file
+	 * @param compared executed instance of test class it is compared with
+	 * @return SAME, or DIFFERS followed by output params having different values
+	 * @throws Exception
+	 */
+	private String compareOutputs(final Map<String, List<String>> ioParams, final SimpleAcceptBase instance,
+			final SimpleAcceptBase compared) throws Exception {
+		final StringBuilder mismatches = new StringBuilder();
+		for (String outputParam : ioParams.get(OUTPUT_PARAM)) {
+			final String value = SimpleAcceptUtility.getFieldValue(instance.getClass(), instance, outputParam);
+			final String comparedValue = SimpleAcceptUtility.getFieldValue(compared.getClass(), compared, outputParam);
+			if (!value.equals(comparedValue))
+				mismatches.append(' ').append(outputParam).append(" [").append(value).append("] / [").append(comparedValue).append("].");
+		}
+		return (mismatches.length() > 0) ? SimpleAcceptComparison.DIFFERS + mismatches : SimpleAcceptComparison.SAME;
+	}
+	
+	/**
+	 * Sets CPU time and allocated bytes of current thread since given start values on given row, shared by given number of rows.
+	 * 
+	 * @param row
+	 * @param startCpuNanos -1 if not measured
+	 * @param startAllocatedBytes -1 if not measured
+	 * @param rowCount
+	 */
+	private void measureResources(final SimpleAcceptRow row, final long startCpuNanos, final long startAllocatedBytes, final int rowCount) {
+		if (resourceMeter == null)
+			return;
+		row.cpuNanos = (startCpuNanos >= 0) ? (resourceMeter.getCpuNanos() - startCpuNanos) / rowCount : -1;
+		row.allocatedBytes = (startAllocatedBytes >= 0) ? (resourceMeter.getAllocatedBytes() - startAllocatedBytes) / rowCount : -1;
+	}
+	
+	/**
+	 * Executes rows collected for batch test class as one block and reports them in order.
+	 * Deadline of the block is row deadline multiplied by number of rows.
+	 * 
 	 * @param instance
 	 * @param ioParams
-	 * @param ioValues
+	 * @param pendingRows rows (and other lines) waiting to be reported, cleared afterwards
+	 * @param writer
 	 * @throws Exception
 	 */
-	private void executeTesting(final SimpleAcceptBase instance, final Map<String, List<String>> ioParams, final String[] ioValues) throws Exception {
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void executeBatch(final SimpleAcceptBase instance, final Map<String, List<String>> ioParams,
+			final List<SimpleAcceptRow> pendingRows, final SimpleAcceptWriter writer) throws Exception {
+		
+		if (pendingRows.isEmpty())
+			return;
+		
+		final List<SimpleAcceptBase> rows = new ArrayList<SimpleAcceptBase>(pendingRows.size());
+		for (SimpleAcceptRow row : pendingRows) {
+			if (row.isTestRow())
+				rows.add(row.instance);
+		}
 		
+		final SimpleAcceptWatchdog.Deadline batchDeadline = (watchdog != null && rowTimeoutMillis > 0)
+				? watchdog.start(testDataFile.getName() + " : " + rows.size() + " rows from " + pendingRows.get(0).line,
+						(long) rowTimeoutMillis * rows.size(), null) : null;
+		final long startCpuNanos = (resourceMeter != null) ? resourceMeter.getCpuNanos() : -1;
+		final long startAllocatedBytes = (resourceMeter != null) ? resourceMeter.getAllocatedBytes() : -1;
+		final long startNanos = System.nanoTime();
+		try {
+			((SimpleAcceptBatchBase) instance).executeBatch(rows);
+		} catch (final Exception e) {
+			/* Exception caused by interrupting timed out block is reported as time out. */
+			if (batchDeadline == null || !batchDeadline.isExpired()) {
+				consolidatedTestResult = TEST_RESULT_FAILED;
+				for (int i=0; i<rows.size() && !isStoppedByCancellation(e); i++)
+					recordFailedRow();
+				throw new Exception("Exception occurred while executing batch of " + rows.size() + " rows starting from [" + pendingRows.get(0).line + "] : " + instance.getClass(), e);
+			}
+		} finally {
+			if (batchDeadline != null)
+				batchDeadline.stop();
+		}
+		/* Execution time (and resources) of the block is shared equally by its rows. */
+		final long rowElapsedNanos = (System.nanoTime() - startNanos) / rows.size();
+		final SimpleAcceptRow blockUsage = new SimpleAcceptRow(null, null);
+		measureResources(blockUsage, startCpuNanos, startAllocatedBytes, rows.size());
+		
+		for (SimpleAcceptRow row : pendingRows) {
+			row.elapsedNanos = rowElapsedNanos;
+			row.cpuNanos = blockUsage.cpuNanos;
+			row.allocatedBytes = blockUsage.allocatedBytes;
+			if (row.isTestRow() && batchDeadline != null && batchDeadline.isExpired()) {
+				row.result = TEST_RESULT_FAILED + " Batch of " + rows.size() + " rows timed out after " + batchDeadline.getElapsedMillis()
+						+ " ms. Deadline is " + batchDeadline.getTimeoutMillis() + " ms.";
+			} else if (row.isTestRow()) {
+				try {
+					verifyOutputs(ioParams, row);
+				} catch (final Exception e) {
+					recordFailedRow();
+					throw e;
+				}
+			}
+			writeRow(writer, row);
+			if (row.isTestRow())
+				freeRowInstances.push(row.instance);
+		}
+		pendingRows.clear();
+	}
+	
+	/**
+	 * Starts asynchronous execution of given row. Failure to start is reported as failure of the row, in its turn.
+	 * 
+	 * @param instance
+	 * @param row
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void submitAsync(final SimpleAcceptBase instance, final SimpleAcceptRow row) {
+		row.startNanos = System.nanoTime();
+		try {
+			row.future = ((SimpleAcceptAsyncBase) instance).executeAsync((SimpleAcceptAsyncBase) row.instance);
+			if (row.future == null)
+				throw new IllegalStateException("executeAsync() returned no future");
+			row.future.whenComplete(new BiConsumer<Object, Throwable>() {
+				@Override
+				public void accept(final Object value, final Throwable failure) {
+					row.endNanos = System.nanoTime();
+				}
+			});
+		} catch (final Exception e) {
+			final CompletableFuture<Object> failed = new CompletableFuture<Object>();
+			failed.completeExceptionally(e);
+			row.future = failed;
+		}
+	}
+	
+	/**
+	 * Waits for in-flight rows of async test class and reports them in order of test data file.
+	 * 
+	 * @param ioParams
+	 * @param pendingRows rows (and other lines) waiting to be reported
+	 * @param writer
+	 * @param all if false, only the oldest row and the already completed rows directly following it are reported
+	 * @return number of reported test rows
+	 * @throws Exception
+	 */
+	private int completeAsync(final Map<String, List<String>> ioParams, final List<SimpleAcceptRow> pendingRows,
+			final SimpleAcceptWriter writer, final boolean all) throws Exception {
+		
+		int completed = 0;
+		while (!pendingRows.isEmpty()) {
+			final SimpleAcceptRow row = pendingRows.get(0);
+			if (row.isTestRow()) {
+				if (!all && completed > 0 && !row.future.isDone())
+					break;
+				awaitAsync(ioParams, row);
+				completed++;
+			}
+			pendingRows.remove(0);
+			writeRow(writer, row);
+			/* Instance of timed out row can still be in use by the system under test. */
+			if (row.isTestRow() && row.future.isDone() && !row.future.isCancelled())
+				freeRowInstances.push(row.instance);
+		}
+		return completed;
+	}
+	
+	/**
+	 * Waits for given in-flight row, within row deadline if any, and validates its outputs.
+	 * 
+	 * @param ioParams
+	 * @param row
+	 * @throws Exception
+	 */
+	private void awaitAsync(final Map<String, List<String>> ioParams, final SimpleAcceptRow row) throws Exception {
+		try {
+			if (rowTimeoutMillis > 0) {
+				final long remainingNanos = TimeUnit.MILLISECONDS.toNanos(rowTimeoutMillis) - (System.nanoTime() - row.startNanos);
+				row.future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+			} else {
+				row.future.get();
+			}
+		} catch (final TimeoutException e) {
+			row.future.cancel(true);
+			row.elapsedNanos = System.nanoTime() - row.startNanos;
+			row.result = TEST_RESULT_FAILED + " Timed out after " + TimeUnit.NANOSECONDS.toMillis(row.elapsedNanos)
+					+ " ms. Deadline is " + rowTimeoutMillis + " ms.";
+			return;
+		} catch (final ExecutionException e) {
+			consolidatedTestResult = TEST_RESULT_FAILED;
+			recordFailedRow();
+			throw new Exception("Exception occurred while executing test : " + row.instance.getClass() + " for [" + row.line + "]", e.getCause());
+		}
+		/* Completion callback may not have run yet, when get() returns. */
+		row.elapsedNanos = ((row.endNanos != 0) ? row.endNanos : System.nanoTime()) - row.startNanos;
+		try {
+			verifyOutputs(ioParams, row);
+		} catch (final Exception e) {
+			recordFailedRow();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Completes rows waiting for execution / reporting, for batch or async test class.
+	 * 
+	 * @param instance
+	 * @param ioParams
+	 * @param pendingRows
+	 * @param writer
+	 * @throws Exception
+	 */
+	private void completePendingRows(final SimpleAcceptBase instance, final Map<String, List<String>> ioParams,
+			final List<SimpleAcceptRow> pendingRows, final SimpleAcceptWriter writer) throws Exception {
+		if (instance instanceof SimpleAcceptAsyncBase)
+			completeAsync(ioParams, pendingRows, writer, true);
+		else
+			executeBatch(instance, ioParams, pendingRows, writer);
+	}
+	
+	/**
+	 * Cancels in-flight rows, if processing of the file is stopped before their completion.
+	 * 
+	 * @param pendingRows
+	 */
+	private void cancelPendingRows(final List<SimpleAcceptRow> pendingRows) {
+		for (SimpleAcceptRow row : pendingRows) {
+			if (row.future != null)
+				row.future.cancel(true);
+		}
+		pendingRows.clear();
+	}
+	
+	/**
+	 * Returns instance of test class to bind a row of batch / async test class to.
+	 * 
+	 * @param instance
+	 * @return row instance
+	 * @throws Exception
+	 */
+	private SimpleAcceptBase takeRowInstance(final SimpleAcceptBase instance) throws Exception {
+		final SimpleAcceptBase rowInstance = freeRowInstances.poll();
+		return (rowInstance != null) ? rowInstance : SimpleAcceptInstancePool.newInstance(instance.getClass());
+	}
+	
+	/**
+	 * Validates given row and sets its input values on its test class instance.
+	 * 
+	 * @param ioParams
+	 * @param row
+	 * @throws Exception
+	 */
+	private void bindInputs(final Map<String, List<String>> ioParams, final SimpleAcceptRow row) throws Exception {
+		
+		final String[] ioValues = row.values;
 		validate(ioParams, ioValues);
 		
-		/* Create instance of <? extends JitNesseBase from given test data file. */
-		Class<? extends SimpleAcceptBase> clazz = instance.getClass();
+		final SimpleAcceptBase instance = row.instance;
+		final Class<? extends SimpleAcceptBase> clazz = instance.getClass();
 		
 		/* Set values of input params on created instance. */
 		final List<String> inputParams = ioParams.get(INPUT_PARAM);
 		try {
 			for (int inputParamIndex=0; inputParamIndex<inputParams.size(); inputParamIndex++) {
-				SimpleAcceptUtility.setFieldValue(clazz, instance, inputParams.get(inputParamIndex), ioValues[inputParamIndex]);
+				/* Values converted by fixture are set straight from it. */
+				if (row.cells == null || !row.cells.bind(inputParamIndex, instance))
+					SimpleAcceptUtility.setFieldValue(clazz, instance, inputParams.get(inputParamIndex), ioValues[inputParamIndex]);
 			}
 		} catch (final Exception e) {
-			e.printStackTrace();
-			individualTestResult = TEST_RESULT_FAILED;
 			consolidatedTestResult = TEST_RESULT_FAILED;
 			throw new Exception("Exception occurred while setting values of : " + inputParams + " of class " + instance.getClass(), e);
 		}
-
-		/* Execute testing on created instance. */
-		try {
-			instance.execute();
-		} catch (final Exception e) {
-			e.printStackTrace();
-			individualTestResult = TEST_RESULT_FAILED;
-			consolidatedTestResult = TEST_RESULT_FAILED;
-			throw new Exception("Exception occurred while executing test : " + instance.getClass(), e);
-		}
+	}
+	
+	/**
+	 * Retrieves results (output params) of executed row and validates them against expected values.
+	 * 
+	 * @param ioParams
+	 * @param row
+	 * @throws Exception
+	 */
+	private void verifyOutputs(final Map<String, List<String>> ioParams, final SimpleAcceptRow row) throws Exception {
 		
-		/* Retrieve results (output params) and validate them against expected values. */
+		final String[] ioValues = row.values;
+		final SimpleAcceptBase instance = row.instance;
+		final Class<? extends SimpleAcceptBase> clazz = instance.getClass();
+		final List<String> inputParams = ioParams.get(INPUT_PARAM);
 		final List<String> outputParams = ioParams.get(OUTPUT_PARAM);
+		
+		row.result = TEST_RESULT_PASSED;
 		try {
 			for (int outputParamIndex=0; outputParamIndex<outputParams.size(); outputParamIndex++) {
-				final String outputValue = SimpleAcceptUtility.getFieldValue(clazz, instance, outputParams.get(outputParamIndex));
 				final int ioValuesIndex = inputParams.size() + outputParamIndex;
 				final String expected = ioValues[ioValuesIndex];
+				/* Large output is streamed against expected file / hash, never converted to String. */
+				if (SimpleAcceptExpectedFile.isReference(expected)) {
+					final String mismatch = SimpleAcceptExpectedFile.compare(testDataFile.getAbsoluteFile().getParentFile(), expected,
+							SimpleAcceptUtility.getFieldObject(clazz, instance, outputParams.get(outputParamIndex)));
+					if (mismatch != null)
+						row.result = TEST_RESULT_FAILED + " Expected [" + expected + "]. " + mismatch;
+					continue;
+				}
+				final String outputValue = SimpleAcceptUtility.getFieldValue(clazz, instance, outputParams.get(outputParamIndex));
 				if (expected == null || expected.trim().isEmpty() || expected.equals(SPECIAL_PARAM_ANY)) {
 					ioValues[ioValuesIndex] = outputValue;
 				} else if (!ioValues[ioValuesIndex].equals(outputValue)) {
-					individualTestResult = TEST_RESULT_FAILED + " Expected [" + ioValues[ioValuesIndex] + "]. Actual [" + outputValue + "].";
-					consolidatedTestResult = TEST_RESULT_FAILED;
-				} else {
-					// Test is passed!
-					individualTestResult = TEST_RESULT_PASSED;
+					row.result = TEST_RESULT_FAILED + " Expected [" + ioValues[ioValuesIndex] + "]. Actual [" + outputValue + "].";
 				}
+				/* Otherwise test is passed, unless any other output param has already failed. */
 			}
 		} catch (final Exception e) {
-			e.printStackTrace();
-			individualTestResult = TEST_RESULT_FAILED;
 			consolidatedTestResult = TEST_RESULT_FAILED;
 			throw new Exception("Exception occurred while retrieving output and determine the test result - " + instance.getClass(), e);
 		}
@@ -242,10 +1113,22 @@ public class SimpleAcceptProcessor {
 	 * @param tokens
 	 * @return
 	 */
-	private boolean canSkip(final String line, final String[] tokens) {
+	private static boolean canSkip(final String line, final String[] tokens) {
 		return (line.isEmpty() || tokens == null || tokens.length == 0);
 	}
 	
+	/**
+	 * Determines if given line (other than first one) of test data file is a test row.
+	 * 
+	 * @param line
+	 * @return true if line is neither empty nor TestParams / BatchSize / DependsOn / CompareWith line
+	 */
+	static boolean isTestRow(final String line) {
+		final String[] tokens = line.split(CSV_DELIM);
+		return !canSkip(line, tokens) && !tokens[0].equals(TEST_PARAMS) && !tokens[0].equals(BATCH_SIZE) && !tokens[0].equals(DEPENDS_ON)
+				&& !tokens[0].equals(SimpleAcceptComparison.COMPARE_WITH);
+	}
+	
 	/**
 	 * Performs validation.
 	 * 1. Checks for number-of-values against number-of-properties.
@@ -277,26 +1160,27 @@ public class SimpleAcceptProcessor {
 		if (tokens[0] == null || tokens[0].trim().isEmpty() || !tokens[0].equals(TEST_CLASS))
 			throw new Exception("No " + TEST_CLASS + " defined. Expected format : " + TEST_CLASS + ",Fully-Qualified-Test-Class-Name");
 		
-		final String className = tokens[1];
-		
+		return borrowInstance(tokens[1]);
+	}
+	
+	/**
+	 * Returns instance of given test class, from instance pool.
+	 * 
+	 * @param className
+	 * @return instance
+	 * @throws Exception
+	 */
+	private SimpleAcceptBase borrowInstance(final String className) throws Exception {
 		Class< ? > clazz = null;
 		try {
 			clazz = Class.forName(className);
 		} catch (final ClassNotFoundException e) {
-			e.printStackTrace();
-			throw new Exception("ClassNotFoundException occurred while creating Class object for : " + className);
+			throw new Exception("ClassNotFoundException occurred while creating Class object for : " + className, e);
 		}
+		if (!SimpleAcceptBase.class.isAssignableFrom(clazz))
+			throw new Exception("Test class " + className + " should extend " + SimpleAcceptBase.class.getName());
 		
-		SimpleAcceptBase instance;
-		try {
-			instance = (SimpleAcceptBase) clazz.newInstance();
-		} catch (final InstantiationException e) {
-			throw new Exception("InstantiationException occurred while creating instance of test class : " + clazz, e);
-		} catch (final IllegalAccessException e) {
-			throw new Exception("IllegalAccessException occurred while creating instance of test class : " + clazz, e);
-		}
-		
-		return instance;
+		return instancePool.borrow(clazz.asSubclass(SimpleAcceptBase.class));
 	}
 	
 	/**
@@ -307,4 +1191,13 @@ public class SimpleAcceptProcessor {
 	public boolean isTestPassed() {
 		return TEST_RESULT_PASSED.equals(consolidatedTestResult);
 	}
+	
+	/**
+	 * Checks if processing of the test file was cancelled before completion.
+	 * 
+	 * @return test cancellation status
+	 */
+	public boolean isTestCancelled() {
+		return TEST_RESULT_CANCELLED.equals(consolidatedTestResult);
+	}
 }
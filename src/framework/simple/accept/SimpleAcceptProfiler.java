@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Sampling profiler of a run (simpleaccept.profiler.interval.millis) : stack traces of workers testing a file are captured
+ * every interval (all of them at once, by one thread dump) and attributed to the test data file and test class being tested.
+ * 
+ * Once the run is done, samples are written to result directory as collapsed stacks, one file per test class
+ * (<test-class>.collapsed), ready for flame graph tools : one line per distinct stack, frames separated by ; starting with
+ * the test data file and ending with the sampled method, followed by number of samples.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptProfiler {
+	
+	static final String FILE_EXT = ".collapsed";
+	
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private final SimpleAcceptLog log;
+	private final ScheduledExecutorService timer;
+	/* Test class and test data file being tested, by worker thread id. */
+	private final Map<Long, String[]> workers = new ConcurrentHashMap<Long, String[]>();
+	/* Number of samples by collapsed stack, by test class. Used by profiler thread only, till it is stopped. */
+	private final Map<String, Map<String, Long>> samples = new HashMap<String, Map<String, Long>>();
+	private long sampleCount = 0;
+	
+	private SimpleAcceptProfiler(final long intervalMillis, final SimpleAcceptLog log) {
+		this.log = log;
+		this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "SimpleAccept-Profiler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		timer.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					sample();
+				} catch (final RuntimeException e) {
+					SimpleAcceptProfiler.this.log.warning(null, "Exception occurred while sampling workers.", e);
+				}
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Starts profiler for given run, if configured.
+	 * 
+	 * @param config
+	 * @param log
+	 * @return profiler, null if workers are not sampled
+	 */
+	static SimpleAcceptProfiler start(final SimpleAcceptConfig config, final SimpleAcceptLog log) {
+		final int intervalMillis = config.getIntProperty(SimpleAcceptUtility.PROFILER_INTERVAL_MILLIS, 0);
+		return (intervalMillis > 0) ? new SimpleAcceptProfiler(intervalMillis, log) : null;
+	}
+	
+	/**
+	 * Attributes samples of current thread to given file, till exit().
+	 * 
+	 * @param testDataFileName
+	 * @param testClassName
+	 */
+	void enter(final String testDataFileName, final String testClassName) {
+		workers.put(Thread.currentThread().getId(), new String[] { testClassName, testDataFileName });
+	}
+	
+	/**
+	 * Stops sampling current thread.
+	 */
+	void exit() {
+		workers.remove(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Captures stack traces of workers testing a file.
+	 */
+	private void sample() {
+		if (workers.isEmpty())
+			return;
+		/* Samples are attributed to the file being tested when the dump was asked for. */
+		final Map<Long, String[]> snapshot = new HashMap<Long, String[]>(workers);
+		final long[] ids = new long[snapshot.size()];
+		int index = 0;
+		for (Long id : snapshot.keySet())
+			ids[index++] = id;
+		final ThreadInfo[] infos = threadBean.getThreadInfo(ids, Integer.MAX_VALUE);
+		for (ThreadInfo info : infos) {
+			/* Thread has ended meanwhile. */
+			if (info == null || info.getStackTrace().length == 0)
+				continue;
+			final String[] worker = snapshot.get(info.getThreadId());
+			final StringBuilder stack = new StringBuilder(worker[1]);
+			final StackTraceElement[] frames = info.getStackTrace();
+			for (int i=frames.length-1; i>=0; i--)
+				stack.append(';').append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+			Map<String, Long> classSamples = samples.get(worker[0]);
+			if (classSamples == null) {
+				classSamples = new HashMap<String, Long>();
+				samples.put(worker[0], classSamples);
+			}
+			final Long stackCount = classSamples.get(stack.toString());
+			classSamples.put(stack.toString(), (stackCount != null) ? stackCount + 1 : 1);
+			sampleCount++;
+		}
+	}
+	
+	/**
+	 * Stops sampling and writes collapsed stacks of every test class into given directory, once the profiler thread is done.
+	 * 
+	 * @param resultDir
+	 */
+	void stop(final File resultDir) {
+		timer.shutdown();
+		boolean isTerminated = false;
+		try {
+			/* Sample being taken is waited for, samples are not shared with the profiler thread afterwards. */
+			isTerminated = timer.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!isTerminated) {
+			/* Samples can still be changed by the profiler thread. */
+			log.warning(null, "Profiler did not stop in time, profiles are not written.", null);
+			return;
+		}
+		for (Map.Entry<String, Map<String, Long>> classSamples : samples.entrySet()) {
+			final File file = new File(resultDir, classSamples.getKey() + FILE_EXT);
+			try {
+				final BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+				try {
+					for (Map.Entry<String, Long> stack : new TreeMap<String, Long>(classSamples.getValue()).entrySet()) {
+						writer.write(stack.getKey() + " " + stack.getValue());
+						writer.newLine();
+					}
+				} finally {
+					writer.close();
+				}
+			} catch (final IOException e) {
+				log.warning(null, "Exception occurred while writing profile " + file, e);
+			}
+		}
+		log.log(Level.INFO, null, "Profiler took " + sampleCount + " samples of " + samples.size() + " test classes.", null);
+	}
+}
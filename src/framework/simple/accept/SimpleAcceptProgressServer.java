@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Local HTTP server publishing live progress of a run as JSON (http://localhost:<port>/progress) containing...
+ * 1. files - total / done / passed / failed / cancelled / skipped, and files being tested
+ * 2. rows - executed / failed rows, rows per second, and per test class
+ * 3. active workers, failed files so far, cancel reason and ETA (estimated by files done so far)
+ * 
+ * Progress is read from counters of the result bean, test threads do not do anything for it.
+ * Server listens on loopback address only.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptProgressServer {
+	
+	static final String PROGRESS_PATH = "/progress";
+	
+	private final HttpServer server;
+	private final ExecutorService executor;
+	
+	/**
+	 * Starts the server.
+	 * 
+	 * @param port 0 means any free port
+	 * @param context run to publish progress of
+	 * @throws IOException
+	 */
+	SimpleAcceptProgressServer(final int port, final SimpleAcceptContext context) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(PROGRESS_PATH, new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					final byte[] body = toJson(context).getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+					exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+					exchange.sendResponseHeaders(200, body.length);
+					final OutputStream out = exchange.getResponseBody();
+					try {
+						out.write(body);
+					} finally {
+						out.close();
+					}
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "SimpleAccept-Progress");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+	}
+	
+	/**
+	 * Starts server for given run, if configured (simpleaccept.progress.port).
+	 * 
+	 * @param context
+	 * @return server, null if not configured or it cannot be started
+	 */
+	static SimpleAcceptProgressServer start(final SimpleAcceptContext context) {
+		final String port = context.config.getProperty(SimpleAcceptUtility.PROGRESS_PORT, false);
+		if (port == null || port.trim().isEmpty())
+			return null;
+		try {
+			final SimpleAcceptProgressServer server = new SimpleAcceptProgressServer(context.config.getIntProperty(SimpleAcceptUtility.PROGRESS_PORT, 0), context);
+			SimpleAcceptUtility.getLogger().info("Progress would be available at : http://localhost:" + server.getPort() + PROGRESS_PATH);
+			return server;
+		} catch (final IOException e) {
+			context.log.warning(null, "Progress server cannot be started on port " + port, e);
+			return null;
+		}
+	}
+	
+	int getPort() {
+		return server.getAddress().getPort();
+	}
+	
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Builds progress of given run.
+	 * 
+	 * @param context
+	 * @return progress as JSON object
+	 */
+	static String toJson(final SimpleAcceptContext context) {
+		final SimpleAcceptResultBean bean = context.bean;
+		final long nowNanos = System.nanoTime();
+		final double elapsedSeconds = (nowNanos - bean.startNanos) / 1e9;
+		int passed = 0;
+		int failed = 0;
+		int cancelled = 0;
+		for (String result : bean.fileResults.values()) {
+			if (SimpleAcceptRunResult.FILE_PASSED.equals(result))
+				passed++;
+			else if (SimpleAcceptRunResult.FILE_CANCELLED.equals(result))
+				cancelled++;
+			else if (SimpleAcceptRunResult.FILE_FAILED.equals(result))
+				failed++;
+		}
+		/* Skipped files (dependencies not passed) are counted by skippedTests. */
+		final int skipped = bean.skippedTests.get();
+		final int done = passed + failed + cancelled + skipped;
+		final long rows = bean.executedRows.sum();
+		
+		final StringBuilder json = new StringBuilder("{");
+		json.append("\"resultDir\":").append(SimpleAcceptUtility.toJsonString(context.resultDir.getAbsolutePath()));
+		if (context.shard != null)
+			json.append(",\"shard\":").append(SimpleAcceptUtility.toJsonString(context.shard.toString()));
+		json.append(",\"elapsedSeconds\":").append(format(elapsedSeconds));
+		json.append(",\"files\":{\"total\":").append(bean.totalTests).append(",\"done\":").append(done)
+				.append(",\"passed\":").append(passed).append(",\"failed\":").append(failed)
+				.append(",\"cancelled\":").append(cancelled).append(",\"skipped\":").append(skipped);
+		json.append(",\"active\":[");
+		final Map<String, Long> activeFiles = new TreeMap<String, Long>(bean.activeFiles);
+		boolean isFirst = true;
+		for (Map.Entry<String, Long> activeFile : activeFiles.entrySet()) {
+			json.append(isFirst ? "" : ",").append("{\"file\":").append(SimpleAcceptUtility.toJsonString(activeFile.getKey()))
+					.append(",\"seconds\":").append(format((nowNanos - activeFile.getValue()) / 1e9)).append('}');
+			isFirst = false;
+		}
+		json.append("]}");
+		json.append(",\"rows\":{\"done\":").append(rows).append(",\"failed\":").append(bean.failedRows.get())
+				.append(",\"perSecond\":").append(format(perSecond(rows, elapsedSeconds))).append('}');
+		json.append(",\"activeWorkers\":").append(activeFiles.size());
+		json.append(",\"classes\":[");
+		isFirst = true;
+		for (Map.Entry<String, LongAdder> classRows : new TreeMap<String, LongAdder>(bean.classRows).entrySet()) {
+			final long count = classRows.getValue().sum();
+			json.append(isFirst ? "" : ",").append("{\"class\":").append(SimpleAcceptUtility.toJsonString(classRows.getKey()))
+					.append(",\"rows\":").append(count).append(",\"rowsPerSecond\":").append(format(perSecond(count, elapsedSeconds))).append('}');
+			isFirst = false;
+		}
+		json.append(']');
+		json.append(",\"failures\":[");
+		final List<String> failures;
+		synchronized (bean.failedTestFiles) {
+			failures = new ArrayList<String>(bean.failedTestFiles);
+		}
+		Collections.sort(failures);
+		for (int i=0; i<failures.size(); i++)
+			json.append((i > 0) ? "," : "").append(SimpleAcceptUtility.toJsonString(failures.get(i)));
+		json.append(']');
+		json.append(",\"cancelReason\":").append(SimpleAcceptUtility.toJsonString(bean.getCancelReason()));
+		/* Remaining files are expected to take as long as done ones did. */
+		final int remaining = bean.totalTests - done;
+		json.append(",\"etaSeconds\":").append((done > 0 && !bean.isCancelled())
+				? format(remaining * elapsedSeconds / done) : ((remaining == 0) ? "0" : "null"));
+		return json.append('}').toString();
+	}
+	
+	private static double perSecond(final long count, final double elapsedSeconds) {
+		return (elapsedSeconds > 0) ? count / elapsedSeconds : 0;
+	}
+	
+	private static String format(final double value) {
+		return String.format(Locale.ENGLISH, "%.1f", value);
+	}
+}
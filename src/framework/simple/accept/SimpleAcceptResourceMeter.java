@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Resource accounting of test rows (simpleaccept.resource.accounting=true) : CPU time and bytes allocated by the worker thread
+ * while executing a row, sampled around execute() (shared equally by rows of a batch). Rows of async test class
+ * are executed by other threads, they are not measured.
+ * 
+ * Usage is reported per row (report columns CpuMillis, AllocatedKB and Cost), per group of rows (ResourceUsage line of report)
+ * and per test class (ReadMe.txt). Rows above configured thresholds are flagged as CPU heavy / allocation heavy in Cost column.
+ * CPU time or allocation not supported by the JVM is reported as -.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptResourceMeter {
+	
+	static final String COLUMNS = "CpuMillis,AllocatedKB,Cost";
+	static final String USAGE_LINE = "ResourceUsage";
+	
+	private static final String CPU_HEAVY = "CPU heavy";
+	private static final String ALLOCATION_HEAVY = "Allocation heavy";
+	
+	private final ThreadMXBean threadBean;
+	/* Null if allocated bytes are not supported. */
+	private final com.sun.management.ThreadMXBean allocationBean;
+	/* 0 means no threshold. */
+	private final long cpuThresholdNanos;
+	private final long allocationThresholdBytes;
+	
+	private SimpleAcceptResourceMeter(final long cpuThresholdNanos, final long allocationThresholdBytes) {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean.isCurrentThreadCpuTimeSupported() && !bean.isThreadCpuTimeEnabled())
+			bean.setThreadCpuTimeEnabled(true);
+		this.threadBean = bean.isCurrentThreadCpuTimeSupported() ? bean : null;
+		com.sun.management.ThreadMXBean allocation = null;
+		if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			allocation = (com.sun.management.ThreadMXBean) bean;
+			if (!allocation.isThreadAllocatedMemoryEnabled())
+				allocation.setThreadAllocatedMemoryEnabled(true);
+		}
+		this.allocationBean = allocation;
+		this.cpuThresholdNanos = cpuThresholdNanos;
+		this.allocationThresholdBytes = allocationThresholdBytes;
+	}
+	
+	/**
+	 * @param config
+	 * @return meter, null if resources of rows are not accounted
+	 */
+	static SimpleAcceptResourceMeter create(final SimpleAcceptConfig config) {
+		if (!Boolean.parseBoolean(config.getProperty(SimpleAcceptUtility.RESOURCE_ACCOUNTING, false)))
+			return null;
+		return new SimpleAcceptResourceMeter(TimeUnit.MILLISECONDS.toNanos(config.getIntProperty(SimpleAcceptUtility.RESOURCE_CPU_THRESHOLD_MILLIS, 0)),
+				config.getIntProperty(SimpleAcceptUtility.RESOURCE_ALLOCATION_THRESHOLD_KB, 0) * 1024L);
+	}
+	
+	/**
+	 * @return CPU time of current thread, -1 if not supported
+	 */
+	long getCpuNanos() {
+		return (threadBean != null) ? threadBean.getCurrentThreadCpuTime() : -1;
+	}
+	
+	/**
+	 * @return bytes allocated by current thread so far, -1 if not supported
+	 */
+	long getAllocatedBytes() {
+		return (allocationBean != null) ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+	}
+	
+	/**
+	 * Returns usage of given row as report columns : CPU time, allocated kilobytes and cost flag.
+	 * 
+	 * @param row
+	 * @return columns (refer COLUMNS)
+	 */
+	String getColumns(final SimpleAcceptRow row) {
+		final StringBuilder flag = new StringBuilder();
+		if (cpuThresholdNanos > 0 && row.cpuNanos > cpuThresholdNanos)
+			flag.append(CPU_HEAVY);
+		if (allocationThresholdBytes > 0 && row.allocatedBytes > allocationThresholdBytes)
+			flag.append((flag.length() > 0) ? " / " : "").append(ALLOCATION_HEAVY);
+		return ((row.cpuNanos >= 0) ? Long.toString(TimeUnit.NANOSECONDS.toMillis(row.cpuNanos)) : "-") + ","
+				+ ((row.allocatedBytes >= 0) ? Long.toString(row.allocatedBytes / 1024) : "-") + ","
+				+ ((flag.length() > 0) ? flag.toString() : "-");
+	}
+	
+	/**
+	 * Resource usage of several rows (group / test class), updated without locking.
+	 */
+	static class Usage {
+		
+		private final LongAdder rows = new LongAdder();
+		private final LongAdder cpuNanos = new LongAdder();
+		private final LongAdder allocatedBytes = new LongAdder();
+		
+		/**
+		 * Adds usage of given row, if it was measured.
+		 * 
+		 * @param row
+		 */
+		void add(final SimpleAcceptRow row) {
+			if (row.cpuNanos < 0 && row.allocatedBytes < 0)
+				return;
+			rows.increment();
+			cpuNanos.add(Math.max(0, row.cpuNanos));
+			allocatedBytes.add(Math.max(0, row.allocatedBytes));
+		}
+		
+		boolean isEmpty() {
+			return rows.sum() == 0;
+		}
+		
+		@Override
+		public String toString() {
+			return rows.sum() + " rows; CPU " + TimeUnit.NANOSECONDS.toMillis(cpuNanos.sum()) + " ms; allocated " + (allocatedBytes.sum() / 1024) + " KB";
+		}
+	}
+}
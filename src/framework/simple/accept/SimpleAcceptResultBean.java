@@ -16,24 +16,165 @@
 package framework.simple.accept;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Copyright 2016, Kashyap Deshpande.
  * 
  * Wrapper bean holding different params that constitute the result. 
  * 
+ * Also keeps track of failure budget (fail-fast). Once number of failed rows / files
+ * reaches the configured budget, the run is marked as cancelled and workers stop
+ * picking up further work.
+ * 
  * @author kashyaprdeshpande@gmail.com
  *
  */
 public class SimpleAcceptResultBean {
-	final List<String> failedTestFiles = new ArrayList<String>();
+	final List<String> failedTestFiles = Collections.synchronizedList(new ArrayList<String>());
+	final List<String> cancelledTestFiles = Collections.synchronizedList(new ArrayList<String>());
+	/* Result (SimpleAcceptRunResult.FILE_*) of every executed test data file, by file name. */
+	final Map<String, String> fileResults = new ConcurrentHashMap<String, String>();
+	/* Rows / files slower than their execution time history. */
+	final List<String> perfRegressions = Collections.synchronizedList(new ArrayList<String>());
 	final AtomicInteger passedTests = new AtomicInteger(0);
 	final AtomicInteger failedTests = new AtomicInteger(0);
+	final AtomicInteger executedTests = new AtomicInteger(0);
+	final AtomicInteger skippedTests = new AtomicInteger(0);
+	final AtomicInteger failedRows = new AtomicInteger(0);
+	/* System.nanoTime() at which first test file was picked up by a worker, 0 till then. */
+	final AtomicLong firstFileStartNanos = new AtomicLong(0);
 	final CountDownLatch terminationLatch;
+	/* Live progress of the run (refer SimpleAcceptProgressServer), updated without locking. */
+	final long startNanos = System.nanoTime();
+	final int totalTests;
+	final LongAdder executedRows = new LongAdder();
+	/* Total execution time of executed rows, for their average latency (refer SimpleAcceptConcurrencyController). */
+	final LongAdder executedRowNanos = new LongAdder();
+	/* Executed rows by test class name. */
+	final Map<String, LongAdder> classRows = new ConcurrentHashMap<String, LongAdder>();
+	/* Resource usage of executed rows by test class name, if resources are accounted. */
+	final Map<String, SimpleAcceptResourceMeter.Usage> classUsage = new ConcurrentHashMap<String, SimpleAcceptResourceMeter.Usage>();
+	/* Comparison of compared rows by pair of test classes (<test-class-name> vs <compared-test-class-name>). */
+	final Map<String, SimpleAcceptComparison.Summary> comparisons = new ConcurrentHashMap<String, SimpleAcceptComparison.Summary>();
+	/* Test rows of tested files and test rows selected from them, if test rows are sampled (refer SimpleAcceptSampler). */
+	final LongAdder sampleTotalRows = new LongAdder();
+	final LongAdder sampledRows = new LongAdder();
+	/* Test data files being tested, with System.nanoTime() of their start. */
+	final Map<String, Long> activeFiles = new ConcurrentHashMap<String, Long>();
+	
+	private final int rowFailureBudget;
+	private final int fileFailureBudget;
+	private final AtomicBoolean cancelled = new AtomicBoolean(false);
+	private volatile String cancelReason;
+	
 	public SimpleAcceptResultBean(final int terminationLatchCount) {
+		this(terminationLatchCount, 0, 0);
+	}
+	
+	/**
+	 * @param terminationLatchCount
+	 * @param rowFailureBudget number of failed rows after which run is cancelled, 0 means no limit
+	 * @param fileFailureBudget number of failed files after which run is cancelled, 0 means no limit
+	 */
+	public SimpleAcceptResultBean(final int terminationLatchCount, final int rowFailureBudget, final int fileFailureBudget) {
 		terminationLatch = new CountDownLatch(terminationLatchCount);
+		this.totalTests = terminationLatchCount;
+		this.rowFailureBudget = rowFailureBudget;
+		this.fileFailureBudget = fileFailureBudget;
+	}
+	
+	/**
+	 * Records failed test row and cancels the run if row failure budget is exhausted.
+	 */
+	void recordFailedRow() {
+		final int count = failedRows.incrementAndGet();
+		if (rowFailureBudget > 0 && count >= rowFailureBudget)
+			cancel("Failure budget of " + rowFailureBudget + " failed test rows is exhausted.");
+	}
+	
+	/**
+	 * Records failed test file and cancels the run if file failure budget is exhausted.
+	 * 
+	 * @param testDataFileName
+	 */
+	void recordFailedFile(final String testDataFileName) {
+		failedTestFiles.add(testDataFileName);
+		final int count = failedTests.incrementAndGet();
+		if (fileFailureBudget > 0 && count >= fileFailureBudget)
+			cancel("Failure budget of " + fileFailureBudget + " failed test files is exhausted.");
+	}
+	
+	/**
+	 * Returns counter of executed rows of given test class, to be looked up once per test data file.
+	 * 
+	 * @param className
+	 * @return counter
+	 */
+	LongAdder getClassRowCounter(final String className) {
+		final LongAdder counter = classRows.get(className);
+		if (counter != null)
+			return counter;
+		final LongAdder newCounter = new LongAdder();
+		final LongAdder existing = classRows.putIfAbsent(className, newCounter);
+		return (existing != null) ? existing : newCounter;
+	}
+	
+	/**
+	 * Returns resource usage of given test class, to be looked up once per test data file.
+	 * 
+	 * @param className
+	 * @return usage
+	 */
+	SimpleAcceptResourceMeter.Usage getClassUsage(final String className) {
+		final SimpleAcceptResourceMeter.Usage usage = classUsage.get(className);
+		if (usage != null)
+			return usage;
+		final SimpleAcceptResourceMeter.Usage newUsage = new SimpleAcceptResourceMeter.Usage();
+		final SimpleAcceptResourceMeter.Usage existing = classUsage.putIfAbsent(className, newUsage);
+		return (existing != null) ? existing : newUsage;
+	}
+	
+	/**
+	 * Returns comparison of given pair of test classes, to be looked up once per test data file.
+	 * 
+	 * @param pair
+	 * @return comparison
+	 */
+	SimpleAcceptComparison.Summary getComparison(final String pair) {
+		final SimpleAcceptComparison.Summary comparison = comparisons.get(pair);
+		if (comparison != null)
+			return comparison;
+		final SimpleAcceptComparison.Summary newComparison = new SimpleAcceptComparison.Summary();
+		final SimpleAcceptComparison.Summary existing = comparisons.putIfAbsent(pair, newComparison);
+		return (existing != null) ? existing : newComparison;
+	}
+	
+	/**
+	 * Marks the run as cancelled. Only first reason is retained.
+	 * 
+	 * @param reason
+	 */
+	void cancel(final String reason) {
+		if (cancelled.compareAndSet(false, true)) {
+			cancelReason = reason;
+			SimpleAcceptUtility.getLogger().warning("Cancelling testing. " + reason);
+		}
+	}
+	
+	boolean isCancelled() {
+		return cancelled.get();
+	}
+	
+	String getCancelReason() {
+		return cancelReason;
 	}
 }
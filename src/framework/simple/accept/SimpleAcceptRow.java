@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * One line of test data file, waiting to be executed and / or reported.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptRow {
+	
+	/* Line as given in test data file. */
+	final String line;
+	/* Input and expected values. Expected values given as '?' are replaced by actual ones. Null if line is not a test row. */
+	final String[] values;
+	/* True if the row is generated from generator cells of test data file. */
+	final boolean isGenerated;
+	/* Cells compiled by fixture, with converted input values, null if not compiled. */
+	final SimpleAcceptFixture.Cells cells;
+	/* Instance on which the row is executed. */
+	SimpleAcceptBase instance;
+	/* Test result of the row. */
+	String result;
+	/* Start of execution, and pending result of async test class. */
+	long startNanos;
+	CompletableFuture<?> future;
+	/* Completion of async execution, set by the completing thread. */
+	volatile long endNanos;
+	/* Execution time, share of the block for batch test class. */
+	long elapsedNanos;
+	/* CPU time and bytes allocated by the worker thread while executing the row, -1 if not measured (refer SimpleAcceptResourceMeter). */
+	long cpuNanos = -1;
+	long allocatedBytes = -1;
+	/* Comparison with the test class the row is compared with and its execution time, null / -1 if not compared (refer SimpleAcceptComparison). */
+	String compareResult;
+	long compareElapsedNanos = -1;
+	/* Index among test rows of the file (refer SimpleAcceptRowOutcomes), -1 for other lines. */
+	long index = -1;
+	/* Row as reported by previous run, if it is carried forward from there instead of being executed. */
+	String carriedReportLine;
+	boolean isCarriedPassed;
+	
+	SimpleAcceptRow(final String line, final String[] values) {
+		this(line, values, false, null);
+	}
+	
+	SimpleAcceptRow(final String line, final String[] values, final boolean isGenerated, final SimpleAcceptFixture.Cells cells) {
+		this.line = line;
+		this.values = values;
+		this.isGenerated = isGenerated;
+		this.cells = cells;
+	}
+	
+	boolean isTestRow() {
+		return values != null;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Expands test row containing generator cells into test rows, one for each combination
+ * (cartesian product) of generated values. Last generator cell changes fastest.
+ * 
+ * Generator cells are...
+ * 1. {range:<from>..<to>} or {range:<from>..<to>:<step>} - integers from / to (both inclusive)
+ * 2. {list:<value>|<value>|...} - given values
+ * Generator can have fixed text around it, e.g. user-{range:1..100}
+ * 
+ * Rows are generated one by one, while being read (refer Reader), and are never kept in memory together.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptRowGenerator implements Iterator<String> {
+	
+	private static final String RANGE = "{range:";
+	private static final String LIST = "{list:";
+	private static final String END = "}";
+	private static final String CSV_DELIM = ",";
+	
+	/* Fixed text of every cell, and text after generator of generator cells. */
+	private final String[] prefixes;
+	private final String[] suffixes;
+	/* Generator of every cell, null for fixed cells. */
+	private final Generator[] generators;
+	/* Current combination (odometer), index of generated value of every generator cell. */
+	private final long[] indexes;
+	private final long size;
+	private long generated = 0;
+	
+	/**
+	 * @param line test row with at least one generator cell
+	 */
+	SimpleAcceptRowGenerator(final String line) {
+		final String[] cells = line.split(CSV_DELIM, -1);
+		prefixes = new String[cells.length];
+		suffixes = new String[cells.length];
+		generators = new Generator[cells.length];
+		indexes = new long[cells.length];
+		long combinations = 1;
+		for (int i=0; i<cells.length; i++) {
+			final int start = findGenerator(cells[i]);
+			if (start < 0) {
+				prefixes[i] = cells[i];
+				continue;
+			}
+			final int end = cells[i].indexOf(END, start);
+			if (end < 0)
+				throw new RuntimeException("Generator is not closed by " + END + " in : " + cells[i]);
+			prefixes[i] = cells[i].substring(0, start);
+			suffixes[i] = cells[i].substring(end + 1);
+			generators[i] = cells[i].startsWith(RANGE, start) ? new RangeGenerator(cells[i].substring(start + RANGE.length(), end))
+					: new ListGenerator(cells[i].substring(start + LIST.length(), end));
+			combinations = multiply(combinations, generators[i].size());
+		}
+		size = combinations;
+	}
+	
+	/**
+	 * Checks if given line of test data file contains generator cell.
+	 * 
+	 * @param line
+	 * @return true if rows are to be generated from the line
+	 */
+	static boolean isGenerator(final String line) {
+		return line != null && (line.contains(RANGE) || line.contains(LIST));
+	}
+	
+	/**
+	 * @return number of rows generated from the line
+	 */
+	long size() {
+		return size;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		return generated < size;
+	}
+	
+	@Override
+	public String next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		final StringBuilder sb = new StringBuilder();
+		for (int i=0; i<prefixes.length; i++) {
+			if (i > 0)
+				sb.append(CSV_DELIM);
+			sb.append(prefixes[i]);
+			if (generators[i] != null)
+				sb.append(generators[i].get(indexes[i])).append(suffixes[i]);
+		}
+		generated++;
+		for (int i=generators.length-1; i>=0; i--) {
+			if (generators[i] == null)
+				continue;
+			if (++indexes[i] < generators[i].size())
+				break;
+			indexes[i] = 0;
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	private static int findGenerator(final String cell) {
+		final int range = cell.indexOf(RANGE);
+		return (range >= 0) ? range : cell.indexOf(LIST);
+	}
+	
+	private static long multiply(final long combinations, final long size) {
+		if (size != 0 && combinations > Long.MAX_VALUE / size)
+			throw new RuntimeException("Too many rows to generate.");
+		return combinations * size;
+	}
+	
+	/**
+	 * Values of one generator cell.
+	 */
+	private interface Generator {
+		long size();
+		
+		String get(long index);
+	}
+	
+	private static class RangeGenerator implements Generator {
+		private final long from;
+		private final long step;
+		private final long size;
+		
+		RangeGenerator(final String spec) {
+			try {
+				final String[] bounds = spec.split("\\.\\.");
+				final String[] toAndStep = bounds[1].split(":");
+				from = Long.valueOf(bounds[0].trim());
+				final long to = Long.valueOf(toAndStep[0].trim());
+				step = (toAndStep.length > 1) ? Long.valueOf(toAndStep[1].trim()) : ((to >= from) ? 1 : -1);
+				if (step == 0 || (to - from) / step < 0)
+					throw new IllegalArgumentException("step does not lead from " + from + " to " + to);
+				size = (to - from) / step + 1;
+			} catch (final RuntimeException e) {
+				throw new RuntimeException("Invalid generator " + RANGE + spec + END
+						+ ". Expected format : " + RANGE + "from..to" + END + " or " + RANGE + "from..to:step" + END, e);
+			}
+		}
+		
+		@Override
+		public long size() {
+			return size;
+		}
+		
+		@Override
+		public String get(final long index) {
+			return String.valueOf(from + index * step);
+		}
+	}
+	
+	private static class ListGenerator implements Generator {
+		private final String[] values;
+		
+		ListGenerator(final String spec) {
+			values = spec.split("\\|", -1);
+		}
+		
+		@Override
+		public long size() {
+			return values.length;
+		}
+		
+		@Override
+		public String get(final long index) {
+			return values[(int) index];
+		}
+	}
+	
+	/**
+	 * Reader of test data file, returning generated test rows in place of the row containing generators.
+	 */
+	static class Reader extends BufferedReader implements SimpleAcceptDataReader {
+		
+		private SimpleAcceptRowGenerator current;
+		private boolean isGenerated = false;
+		
+		Reader(final java.io.Reader in) {
+			super(in);
+		}
+		
+		@Override
+		public String readLine() throws IOException {
+			while (true) {
+				if (current != null && current.hasNext()) {
+					isGenerated = true;
+					return current.next();
+				}
+				current = null;
+				isGenerated = false;
+				final String line = super.readLine();
+				if (!isGenerator(line) || !SimpleAcceptProcessor.isTestRow(line))
+					return line;
+				try {
+					current = new SimpleAcceptRowGenerator(line);
+				} catch (final RuntimeException e) {
+					throw new IOException(e.getMessage() + " Line : " + line, e);
+				}
+			}
+		}
+		
+		@Override
+		public boolean isGenerated() {
+			return isGenerated;
+		}
+		
+		@Override
+		public String[] getValues() {
+			return null;
+		}
+		
+		@Override
+		public SimpleAcceptFixture.Cells getCells() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Row level outcomes of a test data file, kept in result directory of a journaled run (<report-name>.outcomes, refer SimpleAcceptJournal),
+ * so that next run can re-execute only rows which have not passed (simpleaccept.rerun=failed).
+ * 
+ * One line per reported test row, in order of test rows : index of the row among test rows of the file,
+ * P (passed) / F (not passed), hash of the row and its TestParams line, and the row as reported.
+ * Row is carried forward only if it has passed at the same index with the same hash, i.e. test data has not changed.
+ * Rows without outcome (e.g. file has stopped by an exception) are re-executed.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptRowOutcomes {
+	
+	static final String FILE_EXT = ".outcomes";
+	static final String RERUN_FAILED = "failed";
+	
+	private static final char SEPARATOR = '\t';
+	private static final String PASSED = "P";
+	private static final String NOT_PASSED = "F";
+	
+	/**
+	 * @param config
+	 * @return true if only rows which have not passed in previous run are executed
+	 */
+	static boolean isRerun(final SimpleAcceptConfig config) {
+		final String rerun = config.getProperty(SimpleAcceptUtility.RERUN, false);
+		if (rerun == null || rerun.trim().isEmpty())
+			return false;
+		if (!RERUN_FAILED.equalsIgnoreCase(rerun.trim()))
+			throw new RuntimeException("Invalid " + SimpleAcceptUtility.RERUN + " : " + rerun + ". Expected : " + RERUN_FAILED);
+		return true;
+	}
+	
+	/**
+	 * Finds result directory of the previous run, latest one having row outcomes.
+	 * 
+	 * @param testDataDir
+	 * @param currentResultDir
+	 * @return directory, null if there is none
+	 */
+	static File findPreviousResultDir(final File testDataDir, final File currentResultDir) {
+		final File[] dirs = testDataDir.listFiles();
+		if (dirs == null)
+			return null;
+		/* Result directories are named by their time stamp. */
+		final List<File> resultDirs = Arrays.asList(dirs);
+		Collections.sort(resultDirs, Collections.reverseOrder());
+		for (File dir : resultDirs) {
+			if (!dir.isDirectory() || dir.equals(currentResultDir))
+				continue;
+			final String[] outcomes = dir.list();
+			for (int i=0; outcomes != null && i<outcomes.length; i++) {
+				if (outcomes[i].endsWith(FILE_EXT))
+					return dir;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @param resultDir
+	 * @param reportName name of test data file as used for its report
+	 * @return outcomes file of given test data file
+	 */
+	static File getFile(final File resultDir, final String reportName) {
+		return new File(resultDir, reportName + FILE_EXT);
+	}
+	
+	/**
+	 * @param paramsLine TestParams line the row belongs to
+	 * @param line
+	 * @return hash identifying content of the row
+	 */
+	static String hash(final String paramsLine, final String line) {
+		final CRC32 crc = new CRC32();
+		crc.update(String.valueOf(paramsLine).getBytes(StandardCharsets.UTF_8));
+		crc.update('\n');
+		crc.update(line.getBytes(StandardCharsets.UTF_8));
+		return Long.toHexString(crc.getValue());
+	}
+	
+	/**
+	 * Writes outcomes of a test data file, row by row. Outcomes are the row journal of the run (refer SimpleAcceptJournal),
+	 * so they are written through and synced to disk in batches, once per sync interval.
+	 */
+	static class Writer implements Closeable {
+		
+		private final FileOutputStream stream;
+		private final BufferedWriter writer;
+		private final long syncNanos;
+		private long lastSyncNanos = System.nanoTime();
+		
+		/**
+		 * @param file
+		 * @param syncMillis 0 means outcomes are written on close only
+		 * @throws IOException
+		 */
+		Writer(final File file, final int syncMillis) throws IOException {
+			this.stream = new FileOutputStream(file);
+			this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+			this.syncNanos = (syncMillis > 0) ? syncMillis * 1000000L : -1;
+		}
+		
+		/**
+		 * @param index index of the row among test rows of the file
+		 * @param isPassed
+		 * @param hash refer hash()
+		 * @param reportLine row as reported
+		 * @throws IOException
+		 */
+		void record(final long index, final boolean isPassed, final String hash, final String reportLine) throws IOException {
+			writer.write(Long.toString(index));
+			writer.write(SEPARATOR);
+			writer.write(isPassed ? PASSED : NOT_PASSED);
+			writer.write(SEPARATOR);
+			writer.write(hash);
+			writer.write(SEPARATOR);
+			writer.write(reportLine);
+			writer.newLine();
+			if (syncNanos > 0 && System.nanoTime() - lastSyncNanos >= syncNanos) {
+				writer.flush();
+				stream.getFD().sync();
+				lastSyncNanos = System.nanoTime();
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.flush();
+			if (syncNanos > 0)
+				stream.getFD().sync();
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Outcome of one row, as recorded.
+	 */
+	static class Outcome {
+		
+		final boolean isPassed;
+		/* Row as reported. */
+		final String reportLine;
+		
+		private Outcome(final boolean isPassed, final String reportLine) {
+			this.isPassed = isPassed;
+			this.reportLine = reportLine;
+		}
+	}
+	
+	/**
+	 * Reads recorded outcomes of a test data file, forward only (rows are asked in order of their index).
+	 */
+	static class Reader implements Closeable {
+		
+		private final BufferedReader reader;
+		private String[] current;
+		
+		/**
+		 * @param file
+		 * @return reader, null if file does not exist (whole test data file is executed then)
+		 * @throws IOException
+		 */
+		static Reader open(final File file) throws IOException {
+			return (file != null && file.isFile()) ? new Reader(file) : null;
+		}
+		
+		private Reader(final File file) throws IOException {
+			this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		}
+		
+		/**
+		 * @param index index of the row among test rows of the file
+		 * @param hash refer hash()
+		 * @return outcome of the row if it is recorded at the same index with the same hash, null if it is to be executed
+		 * @throws IOException
+		 */
+		Outcome get(final long index, final String hash) throws IOException {
+			while (current == null || Long.parseLong(current[0]) < index) {
+				final String line = reader.readLine();
+				if (line == null)
+					return null;
+				current = line.split(String.valueOf(SEPARATOR), 4);
+			}
+			if (Long.parseLong(current[0]) == index && current.length == 4 && current[2].equals(hash))
+				return new Outcome(PASSED.equals(current[1]), current[3]);
+			return null;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
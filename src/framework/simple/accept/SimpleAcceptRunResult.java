@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Immutable outcome of one testing run, as returned by SimpleAcceptEngine.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public final class SimpleAcceptRunResult {
+	
+	public static final String FILE_PASSED = "Passed";
+	public static final String FILE_FAILED = "Failed";
+	public static final String FILE_CANCELLED = "Cancelled";
+	public static final String FILE_SKIPPED = "Skipped";
+	
+	private final File resultDir;
+	private final int totalTests;
+	private final int executedTests;
+	private final int passedTests;
+	private final int failedTests;
+	private final int skippedTests;
+	private final List<String> failedTestFiles;
+	private final List<String> cancelledTestFiles;
+	private final List<String> perfRegressions;
+	private final List<String> resourceUsage;
+	private final List<String> comparisons;
+	private final Map<String, String> fileResults;
+	private final String cancelReason;
+	private final String shard;
+	private final String sampleCoverage;
+	private final boolean passed;
+	
+	/**
+	 * @param resultDir
+	 * @param testDataFiles all files of the run, files not executed are considered skipped
+	 * @param bean
+	 * @param passed
+	 * @param shard null if testing is not sharded
+	 */
+	SimpleAcceptRunResult(final File resultDir, final List<File> testDataFiles, final SimpleAcceptResultBean bean,
+			final boolean passed, final String shard) {
+		this.resultDir = resultDir;
+		this.totalTests = testDataFiles.size();
+		this.executedTests = bean.executedTests.intValue();
+		this.passedTests = bean.passedTests.intValue();
+		this.failedTests = bean.failedTests.intValue();
+		this.skippedTests = bean.skippedTests.intValue();
+		synchronized (bean.failedTestFiles) {
+			this.failedTestFiles = Collections.unmodifiableList(new ArrayList<String>(bean.failedTestFiles));
+		}
+		synchronized (bean.cancelledTestFiles) {
+			this.cancelledTestFiles = Collections.unmodifiableList(new ArrayList<String>(bean.cancelledTestFiles));
+		}
+		synchronized (bean.perfRegressions) {
+			this.perfRegressions = Collections.unmodifiableList(new ArrayList<String>(bean.perfRegressions));
+		}
+		final List<String> usage = new ArrayList<String>();
+		for (Map.Entry<String, SimpleAcceptResourceMeter.Usage> classUsage : new TreeMap<String, SimpleAcceptResourceMeter.Usage>(bean.classUsage).entrySet()) {
+			if (!classUsage.getValue().isEmpty())
+				usage.add(classUsage.getKey() + " : " + classUsage.getValue());
+		}
+		this.resourceUsage = Collections.unmodifiableList(usage);
+		final List<String> pairs = new ArrayList<String>();
+		for (Map.Entry<String, SimpleAcceptComparison.Summary> comparison : new TreeMap<String, SimpleAcceptComparison.Summary>(bean.comparisons).entrySet())
+			pairs.add(comparison.getKey() + " : " + comparison.getValue());
+		this.comparisons = Collections.unmodifiableList(pairs);
+		final Map<String, String> results = new TreeMap<String, String>();
+		for (File testDataFile : testDataFiles) {
+			final String result = bean.fileResults.get(testDataFile.getName());
+			results.put(testDataFile.getName(), (result != null) ? result : FILE_SKIPPED);
+		}
+		this.fileResults = Collections.unmodifiableMap(results);
+		this.cancelReason = bean.getCancelReason();
+		this.shard = shard;
+		final long sampleTotalRows = bean.sampleTotalRows.sum();
+		this.sampleCoverage = (sampleTotalRows > 0) ? bean.sampledRows.sum() + " of " + sampleTotalRows + " test rows ("
+				+ String.format(Locale.ROOT, "%.1f", bean.sampledRows.sum() * 100.0 / sampleTotalRows) + "%)" : null;
+		this.passed = passed;
+	}
+	
+	/**
+	 * Creates result from given file results, e.g. merged from results of several shards.
+	 * 
+	 * @param resultDir
+	 * @param fileResults result (FILE_*) by test data file name
+	 * @param failedTestFiles
+	 * @param perfRegressions
+	 * @param cancelReason null if none of the results was cancelled
+	 * @param shard
+	 */
+	SimpleAcceptRunResult(final File resultDir, final Map<String, String> fileResults, final List<String> failedTestFiles,
+			final List<String> perfRegressions, final String cancelReason, final String shard) {
+		int passedCount = 0;
+		int failedCount = 0;
+		int skippedCount = 0;
+		final List<String> cancelled = new ArrayList<String>();
+		for (Map.Entry<String, String> fileResult : fileResults.entrySet()) {
+			if (FILE_PASSED.equals(fileResult.getValue()))
+				passedCount++;
+			else if (FILE_FAILED.equals(fileResult.getValue()))
+				failedCount++;
+			else if (FILE_SKIPPED.equals(fileResult.getValue()))
+				skippedCount++;
+			else
+				cancelled.add(fileResult.getKey());
+		}
+		this.resultDir = resultDir;
+		this.totalTests = fileResults.size();
+		this.executedTests = totalTests - skippedCount;
+		this.passedTests = passedCount;
+		this.failedTests = failedCount;
+		this.skippedTests = skippedCount;
+		this.failedTestFiles = Collections.unmodifiableList(new ArrayList<String>(failedTestFiles));
+		this.cancelledTestFiles = Collections.unmodifiableList(cancelled);
+		this.perfRegressions = Collections.unmodifiableList(new ArrayList<String>(perfRegressions));
+		this.resourceUsage = Collections.<String>emptyList();
+		this.comparisons = Collections.<String>emptyList();
+		this.fileResults = Collections.unmodifiableMap(new TreeMap<String, String>(fileResults));
+		this.cancelReason = cancelReason;
+		this.shard = shard;
+		this.sampleCoverage = null;
+		this.passed = failedCount == 0 && cancelReason == null && passedCount == totalTests;
+	}
+	
+	/**
+	 * @return directory containing reports of the run, null if there was nothing to test
+	 */
+	public File getResultDir() {
+		return resultDir;
+	}
+	
+	public int getTotalTests() {
+		return totalTests;
+	}
+	
+	public int getExecutedTests() {
+		return executedTests;
+	}
+	
+	public int getPassedTests() {
+		return passedTests;
+	}
+	
+	public int getFailedTests() {
+		return failedTests;
+	}
+	
+	public int getSkippedTests() {
+		return skippedTests;
+	}
+	
+	public List<String> getFailedTestFiles() {
+		return failedTestFiles;
+	}
+	
+	public List<String> getCancelledTestFiles() {
+		return cancelledTestFiles;
+	}
+	
+	/**
+	 * @return rows / files slower than their execution time history, empty if execution times are not tracked
+	 */
+	public List<String> getPerfRegressions() {
+		return perfRegressions;
+	}
+	
+	/**
+	 * @return resource usage of rows by test class, sorted by class name. Empty if resources are not accounted.
+	 */
+	public List<String> getResourceUsage() {
+		return resourceUsage;
+	}
+	
+	/**
+	 * @return comparison of rows by pair of test classes (refer SimpleAcceptComparison), sorted by pair. Empty if rows are not compared.
+	 */
+	public List<String> getComparisons() {
+		return comparisons;
+	}
+	
+	/**
+	 * @return result (FILE_*) by test data file name, sorted by name
+	 */
+	public Map<String, String> getFileResults() {
+		return fileResults;
+	}
+	
+	/**
+	 * @return reason of cancellation (fail-fast / time out), null if run was not cancelled
+	 */
+	public String getCancelReason() {
+		return cancelReason;
+	}
+	
+	/**
+	 * @return shard(s) tested, e.g. 1/4. Null if testing was not sharded.
+	 */
+	public String getShard() {
+		return shard;
+	}
+	
+	/**
+	 * @return sampled test rows of all test rows of tested files, e.g. 120 of 1200 test rows (10.0%). Null if test rows were not sampled.
+	 */
+	public String getSampleCoverage() {
+		return sampleCoverage;
+	}
+	
+	/**
+	 * @return true if all tests have passed
+	 */
+	public boolean isPassed() {
+		return passed;
+	}
+	
+	@Override
+	public String toString() {
+		return "SimpleAcceptRunResult [resultDir=" + resultDir + ", total=" + totalTests + ", executed=" + executedTests
+				+ ", passed=" + passedTests + ", failed=" + failedTests + ", skipped=" + skippedTests
+				+ ", cancelled=" + cancelledTestFiles.size() + ", status=" + (passed ? "Passed" : "Failed") + "]";
+	}
+}
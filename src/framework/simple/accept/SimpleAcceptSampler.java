@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Stratified sampling of test rows (simpleaccept.sample), for fast smoke runs : given percentage (e.g. 10%) or number (e.g. 20)
+ * of test rows is tested from every TestParams group of every file, at least one row of a non empty group.
+ * 
+ * Rows of a group are selected one by one as they are read (selection sampling), with probability of
+ * rows still to be selected / rows left in the group, so that exactly the sample size is selected, in order of the file.
+ * Group sizes are counted by reading the file once before testing (rows generated from generator cells are counted, not generated),
+ * no row is kept in memory. Selection is seeded (simpleaccept.sample.seed) by file name and group, same seed selects same rows.
+ * 
+ * Sampling is applied after sharding (refer SimpleAcceptShard), i.e. a shard samples rows of its row range only.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptSampler {
+	
+	private static final String CSV_DELIM = ",";
+	private static final String PERCENT = "%";
+	private static final long DEFAULT_SEED = 1;
+	
+	/* Either percentage of rows (> 0) or number of rows (> 0) of every group. */
+	private final double percent;
+	private final long count;
+	private final long seed;
+	
+	private SimpleAcceptSampler(final double percent, final long count, final long seed) {
+		this.percent = percent;
+		this.count = count;
+		this.seed = seed;
+	}
+	
+	/**
+	 * @param config
+	 * @return sampler, null if all rows are tested
+	 */
+	static SimpleAcceptSampler create(final SimpleAcceptConfig config) {
+		final String sample = config.getProperty(SimpleAcceptUtility.SAMPLE, false);
+		if (sample == null || sample.trim().isEmpty())
+			return null;
+		final String seed = config.getProperty(SimpleAcceptUtility.SAMPLE_SEED, false);
+		try {
+			final long sampleSeed = (seed == null || seed.trim().isEmpty()) ? DEFAULT_SEED : Long.parseLong(seed.trim());
+			if (sample.trim().endsWith(PERCENT)) {
+				final double percent = Double.parseDouble(sample.trim().substring(0, sample.trim().length() - PERCENT.length()));
+				if (percent > 0 && percent <= 100)
+					return new SimpleAcceptSampler(percent, 0, sampleSeed);
+			} else {
+				final long count = Long.parseLong(sample.trim());
+				if (count > 0)
+					return new SimpleAcceptSampler(0, count, sampleSeed);
+			}
+		} catch (final NumberFormatException e) {
+			/* Reported below. */
+		}
+		throw new RuntimeException("Invalid " + SimpleAcceptUtility.SAMPLE + " : " + sample + " / " + SimpleAcceptUtility.SAMPLE_SEED + " : " + seed
+				+ ". Expected format : Percentage% (e.g. 10%) or Rows-Per-Group (e.g. 20), and a number as seed");
+	}
+	
+	/**
+	 * Counts test rows of every group of given file, to start its sampling.
+	 * 
+	 * @param testDataFile
+	 * @param rowRange rows of the file tested by this shard, null if all rows are
+	 * @return sample of the file
+	 * @throws IOException
+	 */
+	FileSample open(final File testDataFile, final SimpleAcceptShard.RowRange rowRange) throws IOException {
+		/* Rows before first TestParams line are counted as group 0. */
+		final List<Long> groupSizes = new ArrayList<Long>();
+		groupSizes.add(0L);
+		final BufferedReader reader = new BufferedReader(new FileReader(testDataFile));
+		try {
+			/* First line is TestClass. */
+			String line = reader.readLine();
+			long testRowIndex = 0;
+			while ((line = reader.readLine()) != null) {
+				final String[] tokens = line.split(CSV_DELIM);
+				if (tokens.length > 0 && tokens[0].equals(SimpleAcceptProcessor.TEST_PARAMS)) {
+					groupSizes.add(0L);
+				} else if (SimpleAcceptProcessor.isTestRow(line)) {
+					final long rows = SimpleAcceptRowGenerator.isGenerator(line) ? new SimpleAcceptRowGenerator(line).size() : 1;
+					groupSizes.set(groupSizes.size() - 1, groupSizes.get(groupSizes.size() - 1)
+							+ ((rowRange != null) ? rowRange.count(testRowIndex, rows) : rows));
+					testRowIndex += rows;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return new FileSample(testDataFile.getName(), groupSizes);
+	}
+	
+	/**
+	 * @param groupSize
+	 * @return number of rows selected from group of given size
+	 */
+	private long getSampleSize(final long groupSize) {
+		if (groupSize == 0)
+			return 0;
+		final long size = (count > 0) ? count : Math.round(groupSize * percent / 100);
+		return Math.max(1, Math.min(groupSize, size));
+	}
+	
+	@Override
+	public String toString() {
+		return ((count > 0) ? count + " test rows" : percent + "% of test rows") + " of every TestParams group, seed " + seed;
+	}
+	
+	/**
+	 * Sampling of one test data file, group by group, in order of the file.
+	 */
+	class FileSample {
+		
+		private final String fileName;
+		private final List<Long> groupSizes;
+		private int group = 0;
+		private Random random;
+		/* Rows of current group not read yet, and not selected yet. */
+		private long remainingRows;
+		private long remainingSample;
+		private long totalRows = 0;
+		private long sampledRows = 0;
+		
+		private FileSample(final String fileName, final List<Long> groupSizes) {
+			this.fileName = fileName;
+			this.groupSizes = groupSizes;
+			for (Long groupSize : groupSizes)
+				totalRows += groupSize;
+			startGroup(0);
+		}
+		
+		private void startGroup(final int index) {
+			group = index;
+			remainingRows = (index < groupSizes.size()) ? groupSizes.get(index) : 0;
+			remainingSample = getSampleSize(remainingRows);
+			random = new Random(seed * 31 + fileName.hashCode() * 31L + index);
+		}
+		
+		/**
+		 * Moves on to next TestParams group.
+		 */
+		void nextGroup() {
+			startGroup(group + 1);
+		}
+		
+		/**
+		 * Decides if next test row of current group is tested.
+		 * 
+		 * @return true if the row is in the sample
+		 */
+		boolean select() {
+			if (remainingRows <= 0)
+				return false;
+			final boolean selected = random.nextDouble() * remainingRows < remainingSample;
+			remainingRows--;
+			if (selected) {
+				remainingSample--;
+				sampledRows++;
+			}
+			return selected;
+		}
+		
+		/**
+		 * @return test rows of the file
+		 */
+		long getTotalRows() {
+			return totalRows;
+		}
+		
+		/**
+		 * @return test rows selected so far
+		 */
+		long getSampledRows() {
+			return sampledRows;
+		}
+	}
+}
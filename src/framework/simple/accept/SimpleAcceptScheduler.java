@@ -0,0 +1,434 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Hands test data files over to workers, respecting...
+ * 1. concurrency limits of test classes and named resources (refer SimpleAcceptConcurrency)
+ * 2. dependencies between files (DependsOn line, refer ReadMe.txt). File is started once all files it depends on
+ * 	have passed, and is skipped once any of them has not. Files depending on each other in a cycle are failed up front.
+ * 
+ * Files are kept in submission order and given to workers only as many as there are workers. Once a worker is free,
+ * first waiting file which is ready and whose test class / resources have capacity left is started, files waiting
+ * for a busy resource or for their dependencies do not hold up the others. Limits and dependencies of a file are
+ * known by its header lines, read while the file is submitted.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+class SimpleAcceptScheduler {
+	
+	private static final String CSV_DELIM = ",";
+	private static final String TEST_DATA_FILE_EXT = ".csv";
+	
+	private final SimpleAcceptConfig config;
+	private final ThreadPoolExecutor workerPool;
+	private final SimpleAcceptResultBean bean;
+	private final SimpleAcceptLog log;
+	/* Guarded by this. */
+	private final Map<String, Group> groups = new HashMap<String, Group>();
+	private final Map<String, Task> tasks = new LinkedHashMap<String, Task>();
+	private final List<Task> waiting = new LinkedList<Task>();
+	private int inFlight = 0;
+	private boolean isStarted = false;
+	
+	/**
+	 * @param config
+	 * @param workerPool
+	 * @param bean
+	 * @param log
+	 */
+	SimpleAcceptScheduler(final SimpleAcceptConfig config, final ThreadPoolExecutor workerPool, final SimpleAcceptResultBean bean,
+			final SimpleAcceptLog log) {
+		this.config = config;
+		this.workerPool = workerPool;
+		this.bean = bean;
+		this.log = log;
+	}
+	
+	/**
+	 * Submits given file for testing, it is started (after start()) as soon as its dependencies have passed
+	 * and a worker and its resources are available.
+	 * 
+	 * @param testDataFile
+	 * @param executable work testing the file
+	 */
+	void submit(final File testDataFile, final Runnable executable) {
+		final Header header = Header.read(testDataFile);
+		final Task task = new Task(testDataFile.getName(), executable, getGroups(header.className), header.dependencies);
+		synchronized (this) {
+			tasks.put(task.name, task);
+			waiting.add(task);
+		}
+		dispatch();
+	}
+	
+	/**
+	 * Starts testing of submitted files. Dependencies are resolved once all files are submitted :
+	 * files not being tested in this run (filtered / tested by another shard) are not waited for,
+	 * files completed before a resumed run are satisfied if they have passed,
+	 * files depending on each other in a cycle are reported as failed.
+	 */
+	void start() {
+		synchronized (this) {
+			for (Task task : tasks.values()) {
+				final Iterator<String> iterator = task.dependencies.iterator();
+				while (iterator.hasNext()) {
+					final String dependency = iterator.next();
+					if (tasks.containsKey(dependency))
+						continue;
+					/* File completed before resumed run is not tested again : passed one is satisfied, otherwise the file is skipped. */
+					if (SimpleAcceptRunResult.FILE_PASSED.equals(bean.fileResults.get(dependency))) {
+						iterator.remove();
+					} else if (!bean.fileResults.containsKey(dependency)) {
+						log.warning(task.name, "Dependency " + dependency + " is not tested in this run, it is not waited for.", null);
+						iterator.remove();
+					}
+				}
+			}
+			final Map<String, Integer> states = new HashMap<String, Integer>();
+			for (Task task : tasks.values())
+				failCycles(task, states, new ArrayList<String>());
+			isStarted = true;
+		}
+		dispatch();
+	}
+	
+	/**
+	 * Depth first search of dependencies, failing every file which is part of a cycle.
+	 * 
+	 * @param task
+	 * @param states 1 while dependencies of the file are being searched, 2 once done
+	 * @param path files being searched, from the first one to this one
+	 */
+	private void failCycles(final Task task, final Map<String, Integer> states, final List<String> path) {
+		final Integer state = states.get(task.name);
+		if (state != null && state == 2)
+			return;
+		if (state != null && state == 1) {
+			final List<String> cycle = new ArrayList<String>(path.subList(path.indexOf(task.name), path.size()));
+			cycle.add(task.name);
+			for (String name : cycle) {
+				if (waiting.remove(tasks.get(name))) {
+					log.severe(name, "Dependency cycle : " + cycle, null);
+					bean.fileResults.put(name, SimpleAcceptRunResult.FILE_FAILED);
+					bean.recordFailedFile(name + " (dependency cycle)");
+					bean.terminationLatch.countDown();
+				}
+			}
+			return;
+		}
+		states.put(task.name, 1);
+		path.add(task.name);
+		for (String dependency : task.dependencies) {
+			/* Dependency completed before resumed run is not part of any cycle. */
+			if (tasks.get(dependency) != null)
+				failCycles(tasks.get(dependency), states, path);
+		}
+		path.remove(path.size() - 1);
+		states.put(task.name, 2);
+	}
+	
+	/**
+	 * Starts waiting files, as many as free workers and resources allow, and skips files whose dependencies have not passed.
+	 * Called once a file is finished and periodically by the engine (number of workers can change during the run).
+	 */
+	void dispatch() {
+		final List<Task> eligible = new ArrayList<Task>();
+		synchronized (this) {
+			if (!isStarted)
+				return;
+			boolean isSkipped = true;
+			/* Skipped file can make its dependents skipped too. */
+			while (isSkipped) {
+				isSkipped = false;
+				final Iterator<Task> iterator = waiting.iterator();
+				while (iterator.hasNext()) {
+					final Task task = iterator.next();
+					final String failedDependency = task.getFailedDependency();
+					if (failedDependency != null) {
+						iterator.remove();
+						skip(task, failedDependency);
+						isSkipped = true;
+					} else if (inFlight < workerPool.getCorePoolSize() && task.isReady() && task.hasCapacity()) {
+						iterator.remove();
+						task.acquire();
+						inFlight++;
+						eligible.add(task);
+					}
+				}
+			}
+		}
+		for (Task task : eligible) {
+			try {
+				workerPool.execute(task);
+			} catch (final RejectedExecutionException e) {
+				/* Workers are already stopped (testing is cancelled), file is never started. */
+				release(task);
+				bean.skippedTests.incrementAndGet();
+				bean.terminationLatch.countDown();
+			}
+		}
+	}
+	
+	private void skip(final Task task, final String failedDependency) {
+		log.warning(task.name, "Skipping, it depends on " + failedDependency + " which has not passed.", null);
+		bean.fileResults.put(task.name, SimpleAcceptRunResult.FILE_SKIPPED);
+		bean.skippedTests.incrementAndGet();
+		bean.terminationLatch.countDown();
+	}
+	
+	/**
+	 * @return true if a waiting file could be started by an additional worker
+	 */
+	synchronized boolean hasDispatchableFiles() {
+		for (Task task : waiting) {
+			if (task.isReady() && task.hasCapacity())
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Drops all waiting files, they are never started.
+	 * 
+	 * @return number of dropped files
+	 */
+	synchronized int cancel() {
+		final int count = waiting.size();
+		waiting.clear();
+		return count;
+	}
+	
+	private synchronized void release(final Task task) {
+		for (Group group : task.fileGroups)
+			group.running--;
+		inFlight--;
+	}
+	
+	/**
+	 * Returns limited groups (test class, resources) of given test class.
+	 * Test class limit is simpleaccept.concurrency.limit.<class-name> or limit of SimpleAcceptConcurrency annotation,
+	 * resources are simpleaccept.concurrency.resources.<class-name> and resources of the annotation.
+	 * 
+	 * @param className null if not known
+	 * @return groups, empty if the test class is not limited
+	 */
+	private List<Group> getGroups(final String className) {
+		if (className == null)
+			return Collections.emptyList();
+		final SimpleAcceptConcurrency annotation = getAnnotation(className);
+		final List<Group> fileGroups = new ArrayList<Group>();
+		final int classLimit = config.getIntProperty(SimpleAcceptUtility.CONCURRENCY_LIMIT_PREFIX + className,
+				(annotation != null) ? annotation.limit() : 0);
+		if (classLimit > 0)
+			fileGroups.add(getGroup(className, classLimit));
+		
+		final Set<String> resources = new LinkedHashSet<String>();
+		if (annotation != null)
+			resources.addAll(Arrays.asList(annotation.resources()));
+		final String configuredResources = config.getProperty(SimpleAcceptUtility.CONCURRENCY_RESOURCES_PREFIX + className, false);
+		if (configuredResources != null)
+			resources.addAll(Arrays.asList(configuredResources.split(CSV_DELIM)));
+		for (String resource : resources) {
+			if (resource.trim().isEmpty())
+				continue;
+			/* Named resource is exclusive, unless configured otherwise. */
+			final int limit = config.getIntProperty(SimpleAcceptUtility.CONCURRENCY_LIMIT_PREFIX + resource.trim(), 1);
+			final Group group = (limit > 0) ? getGroup(resource.trim(), limit) : null;
+			if (group != null && !fileGroups.contains(group))
+				fileGroups.add(group);
+		}
+		return fileGroups;
+	}
+	
+	private synchronized Group getGroup(final String name, final int limit) {
+		Group group = groups.get(name);
+		if (group == null) {
+			group = new Group(limit);
+			groups.put(name, group);
+			log.log(Level.INFO, null, "Concurrency of " + name + " is limited to " + limit + " test data file(s).", null);
+		}
+		return group;
+	}
+	
+	/**
+	 * @param className
+	 * @return annotation of given test class, null if not annotated or not found. Class is not initialized here.
+	 */
+	private static SimpleAcceptConcurrency getAnnotation(final String className) {
+		try {
+			return Class.forName(className, false, SimpleAcceptScheduler.class.getClassLoader()).getAnnotation(SimpleAcceptConcurrency.class);
+		} catch (final ClassNotFoundException e) {
+			return null;
+		} catch (final LinkageError e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Header lines of a test data file (TestClass, DependsOn), before first TestParams line.
+	 */
+	static class Header {
+		
+		/* Null if the file has no valid TestClass line (the file is then reported by the processor). */
+		final String className;
+		/* Names of test data files this file depends on. */
+		final List<String> dependencies;
+		
+		private Header(final String className, final List<String> dependencies) {
+			this.className = className;
+			this.dependencies = dependencies;
+		}
+		
+		/**
+		 * @param testDataFile
+		 * @return header of given file, empty if it cannot be read
+		 */
+		static Header read(final File testDataFile) {
+			String className = null;
+			final Set<String> dependencies = new LinkedHashSet<String>();
+			try {
+				final BufferedReader reader = new BufferedReader(new FileReader(testDataFile));
+				try {
+					String line = reader.readLine();
+					final String[] tokens = (line != null) ? line.split(CSV_DELIM) : null;
+					if (tokens != null && tokens.length == 2 && tokens[0].equals(SimpleAcceptProcessor.TEST_CLASS))
+						className = tokens[1].trim();
+					while ((line = reader.readLine()) != null) {
+						final String[] values = line.split(CSV_DELIM);
+						if (values.length > 0 && values[0].equals(SimpleAcceptProcessor.DEPENDS_ON)) {
+							for (int i=1; i<values.length; i++) {
+								final String dependency = values[i].trim();
+								if (!dependency.isEmpty())
+									dependencies.add(dependency.endsWith(TEST_DATA_FILE_EXT) ? dependency : dependency + TEST_DATA_FILE_EXT);
+							}
+						} else if (SimpleAcceptProcessor.isTestRow(line) || values[0].equals(SimpleAcceptProcessor.TEST_PARAMS)) {
+							break;
+						}
+					}
+				} finally {
+					reader.close();
+				}
+			} catch (final IOException e) {
+				/* Reported by the processor. */
+			}
+			/* File cannot depend on itself. */
+			dependencies.remove(testDataFile.getName());
+			return new Header(className, new ArrayList<String>(dependencies));
+		}
+	}
+	
+	/**
+	 * Test class or named resource with limited concurrency. Guarded by the scheduler.
+	 */
+	private static class Group {
+		
+		private final int limit;
+		private int running = 0;
+		
+		private Group(final int limit) {
+			this.limit = limit;
+		}
+	}
+	
+	/**
+	 * Test data file handed over to a worker, releases its groups once finished.
+	 */
+	private class Task implements Runnable {
+		
+		private final String name;
+		private final Runnable executable;
+		private final List<Group> fileGroups;
+		private final List<String> dependencies;
+		
+		private Task(final String name, final Runnable executable, final List<Group> fileGroups, final List<String> dependencies) {
+			this.name = name;
+			this.executable = executable;
+			this.fileGroups = fileGroups;
+			this.dependencies = dependencies;
+		}
+		
+		/* Called while holding scheduler lock. */
+		private boolean hasCapacity() {
+			for (Group group : fileGroups) {
+				if (group.running >= group.limit)
+					return false;
+			}
+			return true;
+		}
+		
+		/* Called while holding scheduler lock. */
+		private void acquire() {
+			for (Group group : fileGroups)
+				group.running++;
+		}
+		
+		/**
+		 * @return true if all files this file depends on have passed
+		 */
+		private boolean isReady() {
+			for (String dependency : dependencies) {
+				if (!SimpleAcceptRunResult.FILE_PASSED.equals(bean.fileResults.get(dependency)))
+					return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * @return name of a file this file depends on, which has finished without passing. Null if there is none.
+		 */
+		private String getFailedDependency() {
+			for (String dependency : dependencies) {
+				final String result = bean.fileResults.get(dependency);
+				if (result != null && !SimpleAcceptRunResult.FILE_PASSED.equals(result))
+					return dependency;
+			}
+			return null;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				executable.run();
+			} finally {
+				release(this);
+				dispatch();
+			}
+		}
+	}
+}
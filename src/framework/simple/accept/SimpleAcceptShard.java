@@ -0,0 +1,326 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Deterministic partitioning of test data files across several nodes (shards), given as shard=i/n.
+ * Every node discovers the same files and selects its own slice, without any coordination.
+ * 
+ * Files are assigned to shards...
+ * 1. hash (default) - by CRC32 of file name. Stable when files are added / removed.
+ * 2. cost - by execution time history (longest first, to least loaded shard), to balance wall time.
+ * 	History file (SimpleAccept.history) has to be same on all nodes. Files without history are considered average.
+ * Files depending on each other (DependsOn line) are assigned together, as one unit named by its first file name.
+ * 
+ * Files with more test rows than given threshold are not assigned to one shard, each shard tests
+ * its own contiguous range of their rows instead. Reports of such files are named with the range, e.g.
+ * SampleTestData_Rows-1of4_Report.txt
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptShard {
+	
+	static final String STRATEGY_HASH = "hash";
+	static final String STRATEGY_COST = "cost";
+	
+	private final int index;
+	private final int count;
+	private final String strategy;
+	private final int rowSliceThreshold;
+	/* Row ranges of files tested by all shards, by file name. */
+	private final Map<String, RowRange> rowRanges = new HashMap<String, RowRange>();
+	
+	/**
+	 * @param index 1 based index of this shard
+	 * @param count number of shards
+	 * @param strategy hash / cost
+	 * @param rowSliceThreshold files with more test rows than this are split by rows, 0 means never
+	 */
+	SimpleAcceptShard(final int index, final int count, final String strategy, final int rowSliceThreshold) {
+		if (count < 1 || index < 1 || index > count)
+			throw new RuntimeException("Invalid shard " + index + "/" + count + ". Expected format : i/n, 1 <= i <= n");
+		if (!STRATEGY_HASH.equalsIgnoreCase(strategy) && !STRATEGY_COST.equalsIgnoreCase(strategy))
+			throw new RuntimeException("Invalid shard strategy " + strategy + ". Expected : " + STRATEGY_HASH + " / " + STRATEGY_COST);
+		this.index = index;
+		this.count = count;
+		this.strategy = strategy.toLowerCase();
+		this.rowSliceThreshold = rowSliceThreshold;
+	}
+	
+	/**
+	 * Creates shard as configured.
+	 * 
+	 * @param config
+	 * @return shard, null if testing is not sharded
+	 */
+	static SimpleAcceptShard create(final SimpleAcceptConfig config) {
+		final String shard = config.getProperty(SimpleAcceptUtility.SHARD, false);
+		if (shard == null || shard.trim().isEmpty())
+			return null;
+		final String[] tokens = shard.trim().split("/");
+		try {
+			if (tokens.length != 2)
+				throw new NumberFormatException(shard);
+			final String strategy = config.getProperty(SimpleAcceptUtility.SHARD_STRATEGY, false);
+			return new SimpleAcceptShard(Integer.valueOf(tokens[0].trim()), Integer.valueOf(tokens[1].trim()),
+					(strategy == null || strategy.trim().isEmpty()) ? STRATEGY_HASH : strategy.trim(),
+					config.getIntProperty(SimpleAcceptUtility.SHARD_ROWS, 0));
+		} catch (final NumberFormatException e) {
+			throw new RuntimeException("Invalid shard " + shard + ". Expected format : i/n, e.g. 1/4", e);
+		}
+	}
+	
+	/**
+	 * Selects test data files of this shard.
+	 * 
+	 * @param files all discovered test data files, in the same order on every shard
+	 * @param history execution time history, used by cost strategy. Can be null.
+	 * @return files to be tested by this shard
+	 * @throws IOException
+	 */
+	List<File> select(final List<File> files, final SimpleAcceptPerfHistory history) throws IOException {
+		final List<File> candidates = new ArrayList<File>();
+		final List<File> selected = new ArrayList<File>();
+		for (File file : files) {
+			final long testRows = (rowSliceThreshold > 0) ? countTestRows(file) : 0;
+			if (testRows > rowSliceThreshold && rowSliceThreshold > 0) {
+				final RowRange range = new RowRange(testRows * (index - 1) / count, testRows * index / count);
+				rowRanges.put(file.getName(), range);
+				selected.add(file);
+			} else {
+				candidates.add(file);
+			}
+		}
+		final List<List<File>> components = getComponents(candidates);
+		if (STRATEGY_COST.equals(strategy))
+			selected.addAll(selectByCost(components, history));
+		else
+			selected.addAll(selectByHash(components));
+		return selected;
+	}
+	
+	/**
+	 * Groups given files into units depending on each other, directly or indirectly.
+	 * 
+	 * @param files
+	 * @return units, files of every unit sorted by name (first one names the unit)
+	 */
+	private static List<List<File>> getComponents(final List<File> files) {
+		final Map<String, File> byName = new HashMap<String, File>();
+		for (File file : files)
+			byName.put(file.getName(), file);
+		/* Union-find, every file points to another file of its unit, root names the unit. */
+		final Map<String, String> parents = new HashMap<String, String>();
+		for (File file : files) {
+			for (String dependency : SimpleAcceptScheduler.Header.read(file).dependencies) {
+				if (!byName.containsKey(dependency))
+					continue;
+				final String root1 = getRoot(parents, file.getName());
+				final String root2 = getRoot(parents, dependency);
+				if (!root1.equals(root2))
+					parents.put(root1, root2);
+			}
+		}
+		final Map<String, List<File>> components = new LinkedHashMap<String, List<File>>();
+		for (File file : files) {
+			final String root = getRoot(parents, file.getName());
+			List<File> component = components.get(root);
+			if (component == null) {
+				component = new ArrayList<File>();
+				components.put(root, component);
+			}
+			component.add(file);
+		}
+		final Comparator<File> byFileName = new Comparator<File>() {
+			@Override
+			public int compare(final File file1, final File file2) {
+				return file1.getName().compareTo(file2.getName());
+			}
+		};
+		for (List<File> component : components.values())
+			Collections.sort(component, byFileName);
+		return new ArrayList<List<File>>(components.values());
+	}
+	
+	private static String getRoot(final Map<String, String> parents, final String name) {
+		String root = name;
+		while (parents.containsKey(root))
+			root = parents.get(root);
+		return root;
+	}
+	
+	/**
+	 * @param components
+	 * @return files of units whose name hashes to this shard
+	 */
+	private List<File> selectByHash(final List<List<File>> components) {
+		final List<File> selected = new ArrayList<File>();
+		for (List<File> component : components) {
+			final CRC32 crc = new CRC32();
+			crc.update(component.get(0).getName().getBytes(StandardCharsets.UTF_8));
+			if (crc.getValue() % count == index - 1)
+				selected.addAll(component);
+		}
+		return selected;
+	}
+	
+	/**
+	 * Assigns units of files, longest first, to the least loaded shard (longest processing time first).
+	 * Ties are broken by unit name / shard index, so that all shards come to the same assignment.
+	 * 
+	 * @param components
+	 * @param history
+	 * @return files assigned to this shard
+	 */
+	private List<File> selectByCost(final List<List<File>> components, final SimpleAcceptPerfHistory history) {
+		final Map<File, Long> costs = new HashMap<File, Long>();
+		long knownCost = 0;
+		int knownCount = 0;
+		for (List<File> component : components) {
+			for (File file : component) {
+				final long cost = (history != null) ? history.getBaselineMicros(file.getName()) : -1;
+				costs.put(file, cost);
+				if (cost >= 0) {
+					knownCost += cost;
+					knownCount++;
+				}
+			}
+		}
+		final long averageCost = (knownCount > 0) ? knownCost / knownCount : 1;
+		final Map<List<File>, Long> componentCosts = new HashMap<List<File>, Long>();
+		for (List<File> component : components) {
+			long componentCost = 0;
+			for (File file : component)
+				componentCost += (costs.get(file) < 0) ? averageCost : costs.get(file);
+			componentCosts.put(component, componentCost);
+		}
+		
+		final List<List<File>> sorted = new ArrayList<List<File>>(components);
+		Collections.sort(sorted, new Comparator<List<File>>() {
+			@Override
+			public int compare(final List<File> component1, final List<File> component2) {
+				final int byCost = componentCosts.get(component2).compareTo(componentCosts.get(component1));
+				return (byCost != 0) ? byCost : component1.get(0).getName().compareTo(component2.get(0).getName());
+			}
+		});
+		final long[] loads = new long[count];
+		final List<File> selected = new ArrayList<File>();
+		for (List<File> component : sorted) {
+			int leastLoaded = 0;
+			for (int i=1; i<count; i++) {
+				if (loads[i] < loads[leastLoaded])
+					leastLoaded = i;
+			}
+			loads[leastLoaded] += componentCosts.get(component);
+			if (leastLoaded == index - 1)
+				selected.addAll(component);
+		}
+		return selected;
+	}
+	
+	/**
+	 * Counts test rows (lines other than TestClass / TestParams / BatchSize / empty ones) of given file.
+	 * Row with generator cells is counted as the rows generated from it, without generating them.
+	 * 
+	 * @param file
+	 * @return number of test rows
+	 * @throws IOException
+	 */
+	private long countTestRows(final File file) throws IOException {
+		final BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			long testRows = 0;
+			/* First line is TestClass. */
+			String line = reader.readLine();
+			while ((line = reader.readLine()) != null) {
+				if (SimpleAcceptProcessor.isTestRow(line))
+					testRows += SimpleAcceptRowGenerator.isGenerator(line) ? new SimpleAcceptRowGenerator(line).size() : 1;
+			}
+			return testRows;
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * @param testDataFile
+	 * @return range of test rows of given file to be tested by this shard, null if whole file is
+	 */
+	RowRange getRowRange(final File testDataFile) {
+		return rowRanges.get(testDataFile.getName());
+	}
+	
+	/**
+	 * @param testDataFile
+	 * @return name of test data file, as used for its report. Contains row range if file is split by rows.
+	 */
+	String getReportName(final File testDataFile) {
+		final String name = testDataFile.getName();
+		if (!rowRanges.containsKey(name))
+			return name;
+		final int extIndex = name.lastIndexOf('.');
+		final String suffix = "_Rows-" + index + "of" + count;
+		return (extIndex < 0) ? name + suffix : name.substring(0, extIndex) + suffix + name.substring(extIndex);
+	}
+	
+	@Override
+	public String toString() {
+		return index + "/" + count;
+	}
+	
+	/**
+	 * Range of test rows, 0 based, end exclusive.
+	 */
+	static class RowRange {
+		final long from;
+		final long to;
+		
+		RowRange(final long from, final long to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		boolean contains(final long testRowIndex) {
+			return testRowIndex >= from && testRowIndex < to;
+		}
+		
+		/**
+		 * @param testRowIndex index of first of given test rows
+		 * @param rows number of consecutive test rows
+		 * @return number of given test rows within the range
+		 */
+		long count(final long testRowIndex, final long rows) {
+			return Math.max(0, Math.min(testRowIndex + rows, to) - Math.max(testRowIndex, from));
+		}
+	}
+}
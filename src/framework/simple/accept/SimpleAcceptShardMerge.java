@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Merges result directories of shards (simpleaccept.shard=i/n) into one result directory.
+ * Reports of all shards are copied and an overall ReadMe.txt is generated.
+ * 
+ * Usage : java framework.simple.accept.SimpleAcceptShardMerge <merged-result-dir> <shard-result-dir>...
+ * 
+ * File tested by several shards (split by rows) is passed only if it has passed on all of them.
+ * Missing shards make the merged result a failed, partial one.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptShardMerge {
+	
+	/* Worse result of a file tested by several shards wins. */
+	private static final List<String> RESULT_ORDER = Arrays.asList(SimpleAcceptRunResult.FILE_PASSED,
+			SimpleAcceptRunResult.FILE_SKIPPED, SimpleAcceptRunResult.FILE_CANCELLED, SimpleAcceptRunResult.FILE_FAILED);
+	
+	/**
+	 * 
+	 * @param args merged result directory, followed by result directories of shards
+	 * @throws Throwable
+	 */
+	public static void main(String[] args) throws Throwable {
+		if (args.length < 2)
+			throw new RuntimeException("Usage : SimpleAcceptShardMerge <merged-result-dir> <shard-result-dir>...");
+		final List<File> shardResultDirs = new ArrayList<File>();
+		for (int i=1; i<args.length; i++)
+			shardResultDirs.add(new File(args[i]));
+		final SimpleAcceptRunResult result = merge(new File(args[0]), shardResultDirs);
+		SimpleAcceptUtility.getLogger().info("Merged result would be available at : " + result.getResultDir().getAbsolutePath());
+		if (!result.isPassed())
+			throw new Error("Testing failed.");
+	}
+	
+	/**
+	 * Merges given result directories of shards.
+	 * 
+	 * @param mergedResultDir created if it does not exist
+	 * @param shardResultDirs
+	 * @return merged result
+	 * @throws IOException
+	 */
+	public static SimpleAcceptRunResult merge(final File mergedResultDir, final List<File> shardResultDirs) throws IOException {
+		if (!mergedResultDir.isDirectory() && !mergedResultDir.mkdirs())
+			throw new IOException("Cannot create merged result directory " + mergedResultDir);
+		
+		final Map<String, String> fileResults = new TreeMap<String, String>();
+		final Set<String> failedTestFiles = new LinkedHashSet<String>();
+		final List<String> perfRegressions = new ArrayList<String>();
+		final Set<String> cancelReasons = new LinkedHashSet<String>();
+		final Set<String> shards = new TreeSet<String>();
+		int shardCount = 0;
+		
+		for (File shardResultDir : shardResultDirs) {
+			final Properties summary = new Properties();
+			final InputStream in = new FileInputStream(new File(shardResultDir, SimpleAcceptEngine.SUMMARY_PROPERTIES_FILE_NAME));
+			try {
+				summary.load(in);
+			} finally {
+				in.close();
+			}
+			
+			final String shard = summary.getProperty(SimpleAcceptEngine.SUMMARY_SHARD);
+			if (shard != null) {
+				shards.add(shard);
+				shardCount = Integer.valueOf(shard.substring(shard.indexOf('/') + 1));
+			}
+			if (summary.getProperty(SimpleAcceptEngine.SUMMARY_CANCEL_REASON) != null)
+				cancelReasons.add(summary.getProperty(SimpleAcceptEngine.SUMMARY_CANCEL_REASON));
+			for (String key : new TreeSet<String>(summary.stringPropertyNames())) {
+				if (key.startsWith(SimpleAcceptEngine.SUMMARY_FILE)) {
+					final String testDataFileName = key.substring(SimpleAcceptEngine.SUMMARY_FILE.length());
+					final String result = summary.getProperty(key);
+					final String mergedResult = fileResults.get(testDataFileName);
+					if (mergedResult == null || RESULT_ORDER.indexOf(result) > RESULT_ORDER.indexOf(mergedResult))
+						fileResults.put(testDataFileName, result);
+				}
+			}
+			for (int i=1; summary.getProperty(SimpleAcceptEngine.SUMMARY_FAILED + i) != null; i++)
+				failedTestFiles.add(summary.getProperty(SimpleAcceptEngine.SUMMARY_FAILED + i));
+			for (int i=1; summary.getProperty(SimpleAcceptEngine.SUMMARY_PERF_REGRESSION + i) != null; i++)
+				perfRegressions.add(summary.getProperty(SimpleAcceptEngine.SUMMARY_PERF_REGRESSION + i));
+			
+			copyReports(shardResultDir, mergedResultDir);
+		}
+		
+		for (int i=1; i<=shardCount; i++) {
+			if (!shards.contains(i + "/" + shardCount))
+				cancelReasons.add("Result of shard " + i + "/" + shardCount + " is missing.");
+		}
+		
+		final StringBuilder cancelReason = new StringBuilder();
+		for (String reason : cancelReasons)
+			cancelReason.append((cancelReason.length() > 0) ? " " : "").append(reason);
+		final StringBuilder mergedShards = new StringBuilder();
+		for (String shard : shards)
+			mergedShards.append((mergedShards.length() > 0) ? ", " : "").append(shard);
+		final SimpleAcceptRunResult result = new SimpleAcceptRunResult(mergedResultDir, fileResults, new ArrayList<String>(failedTestFiles),
+				perfRegressions, (cancelReason.length() > 0) ? cancelReason.toString() : null, shards.isEmpty() ? null : mergedShards.toString());
+		SimpleAcceptEngine.writeSummary(mergedResultDir, result);
+		return result;
+	}
+	
+	/**
+	 * Copies reports of a shard to merged result directory. Summary files are generated again for merged result.
+	 * 
+	 * @param shardResultDir
+	 * @param mergedResultDir
+	 * @throws IOException
+	 */
+	private static void copyReports(final File shardResultDir, final File mergedResultDir) throws IOException {
+		final File[] reports = shardResultDir.listFiles();
+		if (reports == null)
+			return;
+		for (File report : reports) {
+			if (report.isFile() && !report.getName().equals(SimpleAcceptEngine.SUMMARY_FILE_NAME)
+					&& !report.getName().equals(SimpleAcceptEngine.SUMMARY_PROPERTIES_FILE_NAME))
+				Files.copy(report.toPath(), new File(mergedResultDir, report.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
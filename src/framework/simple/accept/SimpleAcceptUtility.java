@@ -16,8 +16,6 @@
 package framework.simple.accept;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,7 +24,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
-import java.util.Properties;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.logging.Logger;
 
 /**
@@ -39,16 +37,53 @@ import java.util.logging.Logger;
  */
 public class SimpleAcceptUtility {
 
-	private static final String DEFAULT_PROPERTIES_FILE = "SimpleAccept.properties";
 	static final String TEST_DATA_FOLDER = "simpleaccept.test.data.folder";
 	static final String TEST_DATA_FILES = "simpleaccept.test.data.files";
 	static final String TEST_RESULTS_RET_COUNT = "simpleaccept.test.results.retention.count";
 	static final String TEST_RESULT_FILE_TYPE = "simpleaccept.result.file.type";
 	static final String CONCURRENT_PROCESSING_COUNT = "simpleaccept.concurrent.processing.count";
+	static final String CONCURRENT_PROCESSING_MIN = "simpleaccept.concurrent.processing.min";
+	static final String CONCURRENT_PROCESSING_MAX = "simpleaccept.concurrent.processing.max";
+	static final String CONCURRENT_PROCESSING_INTERVAL_MILLIS = "simpleaccept.concurrent.processing.interval.millis";
+	static final String CONCURRENCY_LIMIT_PREFIX = "simpleaccept.concurrency.limit.";
+	static final String CONCURRENCY_RESOURCES_PREFIX = "simpleaccept.concurrency.resources.";
+	static final String COMPARE_PREFIX = "simpleaccept.compare.";
 	static final String PROCESSING_LOG_LOCATION = "simpleaccept.processing.log.location";
+	static final String FAILURE_BUDGET_ROWS = "simpleaccept.failure.budget.rows";
+	static final String FAILURE_BUDGET_FILES = "simpleaccept.failure.budget.files";
+	static final String ROW_TIMEOUT_MILLIS = "simpleaccept.row.timeout.millis";
+	static final String FILE_TIMEOUT_MILLIS = "simpleaccept.file.timeout.millis";
+	static final String RUN_TIMEOUT_MINUTES = "simpleaccept.run.timeout.minutes";
+	static final String INSTANCE_POOLING = "simpleaccept.instance.pooling";
+	static final String BATCH_SIZE = "simpleaccept.batch.size";
+	static final String ASYNC_INFLIGHT_COUNT = "simpleaccept.async.inflight.count";
+	static final String STARTUP_TIMING = "simpleaccept.startup.timing";
+	static final String PERF_HISTORY_SIZE = "simpleaccept.perf.history.size";
+	static final String PERF_REGRESSION_SIGMA = "simpleaccept.perf.regression.sigma";
+	static final String PERF_REGRESSION_MIN_MILLIS = "simpleaccept.perf.regression.min.millis";
+	static final String SHARD = "simpleaccept.shard";
+	static final String SHARD_STRATEGY = "simpleaccept.shard.strategy";
+	static final String SHARD_ROWS = "simpleaccept.shard.rows";
+	static final String FIXTURE = "simpleaccept.fixture";
+	static final String LOG_LEVEL = "simpleaccept.log.level";
+	static final String LOG_STACK_TRACE_LIMIT = "simpleaccept.log.stack.trace.limit";
+	static final String PROGRESS_PORT = "simpleaccept.progress.port";
+	static final String RERUN = "simpleaccept.rerun";
+	static final String RESUME = "simpleaccept.resume";
+	static final String JOURNAL = "simpleaccept.journal";
+	static final String JOURNAL_SYNC_MILLIS = "simpleaccept.journal.sync.millis";
+	static final String REPORT_CONSOLIDATED = "simpleaccept.report.consolidated";
+	static final String REPORT_HTML_PAGE_ROWS = "simpleaccept.report.html.page.rows";
+	static final String RESOURCE_ACCOUNTING = "simpleaccept.resource.accounting";
+	static final String PROFILER_INTERVAL_MILLIS = "simpleaccept.profiler.interval.millis";
+	static final String RESOURCE_CPU_THRESHOLD_MILLIS = "simpleaccept.resource.cpu.threshold.millis";
+	static final String RESOURCE_ALLOCATION_THRESHOLD_KB = "simpleaccept.resource.allocation.threshold.kb";
+	static final String SAMPLE = "simpleaccept.sample";
+	static final String SAMPLE_SEED = "simpleaccept.sample.seed";
 	private static final String TEST_DATA_FILE_EXT = ".csv"; 
-	
-	private static final Properties properties = new Properties();
+	private static final String DEFAULT_RESULT_FILE_TYPE = "txt";
+	/* Result directories are named by start time of the run (refer SimpleAcceptEngine), other directories are never cleaned up. */
+	private static final String RESULT_DIR_NAME_PATTERN = "\\d{8}_\\d{2}-\\d{2}-\\d{2}(_\\d+)?";
 	
 	/**
 	 * Converts array to string with comma (,) separated tokens.
@@ -67,6 +102,28 @@ public class SimpleAcceptUtility {
 		return sb.substring(0, sb.length() - 1);
 	}
 	
+	/**
+	 * Changes number of workers of given pool by given delta.
+	 * Resized relatively, so that concurrent resizes (by watchdog and by adaptive concurrency) do not undo each other.
+	 * 
+	 * @param workerPool
+	 * @param delta
+	 */
+	static void resizeWorkerPool(final ThreadPoolExecutor workerPool, final int delta) {
+		if (workerPool == null || delta == 0)
+			return;
+		synchronized (workerPool) {
+			/* Core size can never be more than maximum size. */
+			if (delta > 0) {
+				workerPool.setMaximumPoolSize(workerPool.getMaximumPoolSize() + delta);
+				workerPool.setCorePoolSize(workerPool.getCorePoolSize() + delta);
+			} else {
+				workerPool.setCorePoolSize(workerPool.getCorePoolSize() + delta);
+				workerPool.setMaximumPoolSize(workerPool.getMaximumPoolSize() + delta);
+			}
+		}
+	}
+	
 	/**
 	 * Returns files to process by looking up...
 	 * 1. Given root folder
@@ -87,8 +144,7 @@ public class SimpleAcceptUtility {
 		final List<File> files = new ArrayList<File>();
 		for (File file : root.listFiles()) {
 			if (file.getName().endsWith(TEST_DATA_FILE_EXT)) {
-				if ((filesToProcessList == null) || (filesToProcess.isEmpty())
-						|| (!filesToProcessList.isEmpty() && filesToProcessList.contains(file.getName()))) {
+				if (filesToProcessList.isEmpty() || filesToProcessList.contains(file.getName())) {
 					files.add(file);
 				}
 			}
@@ -101,45 +157,19 @@ public class SimpleAcceptUtility {
 	 * Format is <given-test-data-file-name>_Report.<report-file-format-as-specified-in-properties-file>
 	 * Default is .txt
 	 * 
+	 * @param config
 	 * @param resultDir
 	 * @param testDataFileName
 	 * @return
 	 */
-	static String getReportFileName(final String resultDir, final String testDataFileName) {
+	static String getReportFileName(final SimpleAcceptConfig config, final String resultDir, final String testDataFileName) {
 		/* If no type is specified, default is .txt */
-		final String resultFileNameSuffix = "_Report." + getProperty(TEST_RESULT_FILE_TYPE, false).toLowerCase();
+		final String resultFileType = config.getProperty(TEST_RESULT_FILE_TYPE, false);
+		final String resultFileNameSuffix = "_Report." + ((resultFileType == null || resultFileType.trim().isEmpty())
+				? DEFAULT_RESULT_FILE_TYPE : resultFileType.trim().toLowerCase());
 		return resultDir + File.separator + testDataFileName.replace(TEST_DATA_FILE_EXT, resultFileNameSuffix);
 	}
 	
-	/**
-	 * Loads all the properties from given properties file. 
-	 * 
-	 * @throws IOException
-	 */
-	static void loadProperties() throws IOException {
-		final String configFile = System.getProperty("SIMPLE_ACCEPT_CONFIG_FILE", DEFAULT_PROPERTIES_FILE);
-		final InputStream stream = SimpleAcceptFramework.class.getClassLoader().getResourceAsStream(configFile);
-		if (stream == null) {
-			throw new RuntimeException("Invalid config file [" + configFile + "]");
-		}
-		properties.load(stream);
-	}
-	
-	/**
-	 * Returns value of given property.
-	 * If property is not set, exception is thrown.
-	 *  
-	 * @param propertyName
-	 * @return propertyValue
-	 */
-	static String getProperty(final String propertyName, final boolean isMandatory) {
-		final String propertyValue = properties.getProperty(propertyName);
-		if (isMandatory && (propertyValue == null || propertyValue.trim().isEmpty()))
-			throw new RuntimeException(propertyName + " property is missing. Cannot proceed further.");
-		return propertyValue;
-		
-	}
-	
 	/**
 	 * Sets given value on a given field of given instance.
 	 * Also considers special values like...
@@ -215,9 +245,22 @@ public class SimpleAcceptUtility {
 	 * @throws Exception
 	 */
 	static String getFieldValue(final Class<?> clazz, final SimpleAcceptBase instance, final String fieldName) throws Exception {
+		return getFieldObject(clazz, instance, fieldName).toString();
+	}
+	
+	/**
+	 * Gets the value for given field of given object instance, as it is (e.g. to be streamed instead of converted to String).
+	 * 
+	 * @param clazz
+	 * @param instance
+	 * @param fieldName
+	 * @return
+	 * @throws Exception
+	 */
+	static Object getFieldObject(final Class<?> clazz, final SimpleAcceptBase instance, final String fieldName) throws Exception {
 		final Field outputParam = clazz.getDeclaredField(fieldName);
 		outputParam.setAccessible(true);
-		return outputParam.get(instance).toString();
+		return outputParam.get(instance);
 	}
 	
 	static String getExpectedValue(final int offset, final int index, final String[] args) {
@@ -231,8 +274,10 @@ public class SimpleAcceptUtility {
 	 * 
 	 * @param testResultRetCount
 	 * @param root
+	 * @param currentResultDir result directory of running testing, never removed. Can be null.
+	 * @param keptResultDir result directory read by running testing (refer SimpleAcceptRowOutcomes), never removed. Can be null.
 	 */
-	static void cleanupHistory(final String testResultRetCount, final File root) {
+	static void cleanupHistory(final String testResultRetCount, final File root, final File currentResultDir, final File keptResultDir) {
 		
 		final Comparator<File> resultDirComparator = new Comparator<File>() {
 			@Override
@@ -257,7 +302,7 @@ public class SimpleAcceptUtility {
 			
 			final List<File> resultDirs = new ArrayList<File>();
 			for (File file : rootContent) {
-				if (file.isDirectory())
+				if (file.isDirectory() && file.getName().matches(RESULT_DIR_NAME_PATTERN) && !file.equals(currentResultDir) && !file.equals(keptResultDir))
 					resultDirs.add(file);
 			}
 			
@@ -266,24 +311,24 @@ public class SimpleAcceptUtility {
 			
 			Collections.sort(resultDirs, resultDirComparator);
 			
-			/* Currently folder structure supports for files only. If dir-under-dir is allowed, this needs to be changed. */
-			for (int i=0; i<resultDirs.size()-testResultsHistoryInt; i++) {
-				final File currDir = resultDirs.get(i);
-				while (currDir.exists()) {
-					if (currDir.list() != null && currDir.list().length > 0)
-						currDir.listFiles()[0].delete();
-					else
-						currDir.delete();
-				}
-			}
+			/* Result directory can have directories as well (e.g. pages of paged HTML report). */
+			for (int i=0; i<resultDirs.size()-testResultsHistoryInt; i++)
+				delete(resultDirs.get(i));
 		} catch (final NumberFormatException e) {
-			e.printStackTrace();
+			SimpleAcceptLog.getDefault().warning(null, "Invalid " + TEST_RESULTS_RET_COUNT + " : " + testResultRetCount, e);
 		}
 	}
 	
-	@Deprecated
-	static Properties getProperties() {
-		return properties;
+	/**
+	 * Deletes given file, or directory with its content.
+	 * 
+	 * @param file
+	 */
+	static void delete(final File file) {
+		final File[] content = file.listFiles();
+		for (int i=0; content != null && i<content.length; i++)
+			delete(content[i]);
+		file.delete();
 	}
 	
 	/**
@@ -296,16 +341,42 @@ public class SimpleAcceptUtility {
 		return file.getName().substring(file.getName().lastIndexOf(".") + 1);
 	}
 	
+	/**
+	 * Quotes given value as JSON string.
+	 * 
+	 * @param value
+	 * @return JSON string, JSON null if value is null
+	 */
+	static String toJsonString(final String value) {
+		if (value == null)
+			return "null";
+		final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i=0; i<value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c == '\n')
+				sb.append("\\n");
+			else if (c == '\r')
+				sb.append("\\r");
+			else if (c == '\t')
+				sb.append("\\t");
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+	
 	static Logger getLogger() {
-		final Logger logger = Logger.getLogger("SimpleAcceptance");
-		/*try {
-			Handler fileHandler = new FileHandler(getProperty(PROCESSING_LOG_LOCATION, false));
-			logger.addHandler(fileHandler);
-		} catch (SecurityException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}*/
-		return logger;
+		return LoggerHolder.LOGGER;
+	}
+	
+	/**
+	 * Holds the logger, so that logging is initialized only when something is logged first time.
+	 */
+	private static class LoggerHolder {
+		private static final Logger LOGGER = Logger.getLogger("SimpleAcceptance");
 	}
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Watchdog enforcing per-row and per-file execution deadlines.
+ * 
+ * Worker threads register a deadline before executing a file / row and stop it afterwards.
+ * Watchdog periodically checks registered deadlines and...
+ * 1. interrupts the worker thread once its deadline is over
+ * 2. abandons the file if worker is still not back after grace period.
+ * 	Abandoned worker is replaced by growing the worker pool, so that other files are not held up.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptWatchdog {
+	
+	private static final long CHECK_INTERVAL_MILLIS = 50;
+	/* Time given to interrupted worker to come back, before its file is abandoned. */
+	private static final long ABANDON_GRACE_MILLIS = 5000;
+	
+	private static final int STATE_ACTIVE = 0;
+	private static final int STATE_STOPPED = 1;
+	private static final int STATE_ABANDONED = 2;
+	
+	private final Set<Deadline> deadlines = ConcurrentHashMap.<Deadline>newKeySet();
+	private final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+	private final ThreadPoolExecutor workerPool;
+	private final ScheduledExecutorService scheduler;
+	
+	/**
+	 * @param workerPool pool to grow when a hung worker is abandoned, can be null
+	 */
+	public SimpleAcceptWatchdog(final ThreadPoolExecutor workerPool) {
+		this.workerPool = workerPool;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "SimpleAccept-Watchdog");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		}, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Starts a deadline for current thread. Deadlines can be nested (row within file);
+	 * abandoning a nested deadline abandons the outermost one.
+	 * 
+	 * @param label used in log messages
+	 * @param timeoutMillis 0 or less means no deadline, but worker is still tracked
+	 * @param abandonHandler called (once) if worker is abandoned, can be null
+	 * @return deadline, to be stopped by the same thread
+	 */
+	public Deadline start(final String label, final long timeoutMillis, final Runnable abandonHandler) {
+		final Deadline deadline = new Deadline(label, timeoutMillis, abandonHandler, current.get());
+		current.set(deadline);
+		deadlines.add(deadline);
+		return deadline;
+	}
+	
+	/**
+	 * Returns innermost running deadline of current thread.
+	 * 
+	 * @return deadline, or null
+	 */
+	Deadline current() {
+		return current.get();
+	}
+	
+	/**
+	 * Stops the watchdog. Registered deadlines are not enforced anymore.
+	 */
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+	
+	/**
+	 * Periodic check of all registered deadlines.
+	 */
+	private void check() {
+		final long now = System.nanoTime();
+		for (Deadline deadline : deadlines) {
+			if (deadline.timeoutNanos <= 0 || now - deadline.startNanos < deadline.timeoutNanos)
+				continue;
+			if (!deadline.expired) {
+				if (deadline.expire())
+					SimpleAcceptUtility.getLogger().warning("Deadline of " + deadline.timeoutNanos / 1000000 + " ms is over for : "
+							+ deadline.label + ". Interrupted " + deadline.thread.getName());
+			} else if (deadline.stopNanos == 0
+					&& now - deadline.startNanos - deadline.timeoutNanos > TimeUnit.MILLISECONDS.toNanos(ABANDON_GRACE_MILLIS)) {
+				abandon(deadline.root());
+			}
+		}
+	}
+	
+	/**
+	 * Abandons given (outermost) deadline and replaces its worker.
+	 * 
+	 * @param deadline
+	 */
+	private void abandon(final Deadline deadline) {
+		if (!deadline.state.compareAndSet(STATE_ACTIVE, STATE_ABANDONED))
+			return;
+		SimpleAcceptUtility.getLogger().severe("Worker " + deadline.thread.getName() + " is not responding, abandoning : " + deadline.label);
+		SimpleAcceptUtility.resizeWorkerPool(workerPool, 1);
+		if (deadline.abandonHandler != null)
+			deadline.abandonHandler.run();
+	}
+	
+	/**
+	 * Deadline of one unit of work (file / row) executed by one thread.
+	 */
+	public class Deadline {
+		
+		private final String label;
+		private final Thread thread;
+		private final long startNanos;
+		private final long timeoutNanos;
+		private final Runnable abandonHandler;
+		private final Deadline parent;
+		private final AtomicInteger state = new AtomicInteger(STATE_ACTIVE);
+		/* Both are changed while holding lock of the deadline, refer expire() / stop(). */
+		private volatile boolean expired = false;
+		private volatile long stopNanos = 0;
+		
+		private Deadline(final String label, final long timeoutMillis, final Runnable abandonHandler, final Deadline parent) {
+			this.label = label;
+			this.thread = Thread.currentThread();
+			this.startNanos = System.nanoTime();
+			this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			this.abandonHandler = abandonHandler;
+			this.parent = parent;
+		}
+		
+		/**
+		 * Stops the deadline. If it had expired, interrupt status of current thread is cleared
+		 * so that further work of the thread is not affected.
+		 * 
+		 * @return false if worker was already abandoned (i.e. its result is already recorded)
+		 */
+		public boolean stop() {
+			synchronized (this) {
+				stopNanos = System.nanoTime();
+				if (expired)
+					Thread.interrupted();
+			}
+			deadlines.remove(this);
+			current.set(parent);
+			if (state.compareAndSet(STATE_ACTIVE, STATE_STOPPED))
+				return true;
+			/* Worker is back after being abandoned, pool was grown for it. */
+			if (parent == null)
+				SimpleAcceptUtility.resizeWorkerPool(workerPool, -1);
+			return false;
+		}
+		
+		/**
+		 * Expires the deadline and interrupts its thread, unless the deadline is already stopped.
+		 * Done under the same lock as stop(), so the thread is never interrupted after it has stopped the deadline.
+		 * 
+		 * @return true if the thread was interrupted
+		 */
+		private synchronized boolean expire() {
+			if (stopNanos != 0)
+				return false;
+			expired = true;
+			thread.interrupt();
+			return true;
+		}
+		
+		public boolean isExpired() {
+			return expired;
+		}
+		
+		public boolean isAbandoned() {
+			return root().state.get() == STATE_ABANDONED;
+		}
+		
+		/**
+		 * @return elapsed time in milliseconds since the deadline was started, till it was stopped
+		 */
+		public long getElapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis((stopNanos != 0 ? stopNanos : System.nanoTime()) - startNanos);
+		}
+		
+		public long getTimeoutMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+		}
+		
+		private Deadline root() {
+			Deadline root = this;
+			while (root.parent != null)
+				root = root.parent;
+			return root;
+		}
+	}
+}
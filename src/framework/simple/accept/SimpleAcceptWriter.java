@@ -15,8 +15,10 @@
  */
 package framework.simple.accept;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -43,6 +45,8 @@ public abstract class SimpleAcceptWriter {
 	public static final String LINE_TYPE_FAIILED = "FAILED";
 
 	protected final BufferedWriter writer;
+	/* Fragment is a part of another document (refer SimpleAcceptConsolidatedReport), it has no document start / end. */
+	private boolean isFragment = false;
 
 	public SimpleAcceptWriter(final File testResultFile) throws IOException {
 		writer = new BufferedWriter(new FileWriter(testResultFile));
@@ -56,6 +60,43 @@ public abstract class SimpleAcceptWriter {
 	 * @throws IOException
 	 */
 	public static SimpleAcceptWriter getInstace(final File file) throws IOException {
+		final SimpleAcceptWriter instance = create(file);
+		instance.startDocument();
+		return instance;
+	}
+
+	/**
+	 * Returns appropriate writer, considering file type and configured report mode :
+	 * HTML report is paged (refer PagedHtmlWriter), if rows per page are configured.
+	 * 
+	 * @param file
+	 * @param config
+	 * @return writer
+	 * @throws IOException
+	 */
+	static SimpleAcceptWriter getInstace(final File file, final SimpleAcceptConfig config) throws IOException {
+		final int pageRows = config.getIntProperty(SimpleAcceptUtility.REPORT_HTML_PAGE_ROWS, 0);
+		if (pageRows <= 0 || !FORMAT_HTML.equalsIgnoreCase(SimpleAcceptUtility.getType(file)))
+			return getInstace(file);
+		final SimpleAcceptWriter instance = new PagedHtmlWriter(file, pageRows);
+		instance.startDocument();
+		return instance;
+	}
+
+	/**
+	 * Returns writer of a fragment, i.e. of a section to be copied into another document of the same format.
+	 * 
+	 * @param file
+	 * @return writer
+	 * @throws IOException
+	 */
+	static SimpleAcceptWriter getFragmentInstance(final File file) throws IOException {
+		final SimpleAcceptWriter instance = create(file);
+		instance.isFragment = true;
+		return instance;
+	}
+
+	private static SimpleAcceptWriter create(final File file) throws IOException {
 		final String format = SimpleAcceptUtility.getType(file);
 		if (FORMAT_HTML.equalsIgnoreCase(format))
 			return new HtmlWriter(file);
@@ -73,10 +114,92 @@ public abstract class SimpleAcceptWriter {
 	 * @throws IOException
 	 */
 	public void close() throws IOException {
+		endSection();
+		if (!isFragment)
+			endDocument();
 		writer.flush();
 		writer.close();
 	}
 
+	/**
+	 * Writes start of the document (e.g. root element), nothing by default.
+	 * 
+	 * @throws IOException
+	 */
+	protected void startDocument() throws IOException {
+	}
+
+	/**
+	 * Closes section being written (e.g. open table), nothing by default.
+	 * 
+	 * @throws IOException
+	 */
+	protected void endSection() throws IOException {
+	}
+
+	/**
+	 * Writes end of the document, nothing by default.
+	 * 
+	 * @throws IOException
+	 */
+	protected void endDocument() throws IOException {
+	}
+
+	/**
+	 * Writes table of contents : test data files with their results.
+	 * 
+	 * @param names
+	 * @param results
+	 * @throws IOException
+	 */
+	protected void writeContents(final List<String> names, final List<String> results) throws IOException {
+		writer.write("Contents");
+		writer.newLine();
+		for (int i=0; i<names.size(); i++) {
+			writer.write(names.get(i) + " : " + results.get(i));
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Writes heading of the section of given test data file.
+	 * 
+	 * @param name
+	 * @throws IOException
+	 */
+	protected void writeSectionHeading(final String name) throws IOException {
+		writer.newLine();
+		writer.write("==================== " + name + " ====================");
+		writer.newLine();
+	}
+
+	/**
+	 * Writes end of the section of given test data file, nothing by default.
+	 * 
+	 * @param name
+	 * @throws IOException
+	 */
+	protected void writeSectionEnd(final String name) throws IOException {
+	}
+
+	/**
+	 * Copies given fragment as it is, streamed.
+	 * 
+	 * @param fragment
+	 * @throws IOException
+	 */
+	void writeFragment(final File fragment) throws IOException {
+		final BufferedReader reader = new BufferedReader(new FileReader(fragment));
+		try {
+			final char[] buffer = new char[8192];
+			int count = 0;
+			while ((count = reader.read(buffer)) > 0)
+				writer.write(buffer, 0, count);
+		} finally {
+			reader.close();
+		}
+	}
+
 	/**
 	 * To writer simple line (string) to a file.
 	 * 
@@ -158,6 +281,10 @@ class HtmlWriter extends SimpleAcceptWriter {
 
 	public HtmlWriter(final File testResultFile) throws IOException {
 		super(testResultFile);
+	}
+
+	@Override
+	protected void startDocument() throws IOException {
 		final StringBuilder sb = new StringBuilder();
 		sb.append("<html>");
 		sb.append("<head>");
@@ -193,7 +320,13 @@ class HtmlWriter extends SimpleAcceptWriter {
 
 		final StringBuilder sb = new StringBuilder();
 
-		if (LINE_TYPE_FILE_HEADER.equals(type)) {
+		if (LINE_TYPE_FILE_HEADER.equals(type) && isTableOpened) {
+			/* Header line (e.g. BatchSize) within a group is kept in the group's table. */
+			sb.append("<tr class='" + getTrClass(type) + "'>");
+			for (String token : line.split(","))
+				sb.append("<td>" + token + "</td>");
+			sb.append("</tr>");
+		} else if (LINE_TYPE_FILE_HEADER.equals(type)) {
 			sb.append("<table>");
 			sb.append("<tr class='" + getTrClass(type) + "'>");
 			for (String token : line.split(","))
@@ -212,8 +345,10 @@ class HtmlWriter extends SimpleAcceptWriter {
 				sb.append("<td>" + token + "</td>");
 			sb.append("</tr>");
 		} else {
-			if (!isTableOpened)
+			if (!isTableOpened) {
+				isTableOpened = true;
 				sb.append("<table>");
+			}
 			sb.append("<tr class='" + getTrClass(type) + "'>");
 			if (LINE_TYPE_ERROR.equals(type))
 				sb.append("<td colspan='" + colCount + "'>" + line + "<br>" + comment + "</td>");
@@ -227,9 +362,34 @@ class HtmlWriter extends SimpleAcceptWriter {
 	}
 
 	@Override
-	public void close() throws IOException {
-		writer.write("</table></body></html>");
-		super.close();
+	protected void endSection() throws IOException {
+		if (isTableOpened)
+			writer.write("</table>");
+		isTableOpened = false;
+	}
+
+	@Override
+	protected void endDocument() throws IOException {
+		writer.write("</body></html>");
+	}
+
+	@Override
+	protected void writeContents(final List<String> names, final List<String> results) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<table>");
+		sb.append("<tr class='" + LINE_TYPE_DATA_HEADER + "'><td>Test data file</td><td>Result</td></tr>");
+		for (int i=0; i<names.size(); i++) {
+			sb.append("<tr" + (SimpleAcceptRunResult.FILE_PASSED.equals(results.get(i)) ? "" : " class='" + LINE_TYPE_FAIILED + "'") + ">");
+			sb.append("<td><a href='#" + names.get(i) + "'>" + names.get(i) + "</a></td><td>" + results.get(i) + "</td>");
+			sb.append("</tr>");
+		}
+		sb.append("</table>");
+		writer.write(sb.toString());
+	}
+
+	@Override
+	protected void writeSectionHeading(final String name) throws IOException {
+		writer.write("<h3 id='" + name + "'>" + name + "</h3>");
 	}
 
 	/**
@@ -243,6 +403,190 @@ class HtmlWriter extends SimpleAcceptWriter {
 	}
 }
 
+/**
+ * Writer implementation for HTML file format, for very large reports (simpleaccept.report.html.page.rows).
+ * 
+ * Report file is a small index page. Lines are written as pages of given number of rows, to data files next to it
+ * (<report-name>_pages/rows-<page>.js), and failed rows (and errors) once more as pages of failures only (failures-<page>.js).
+ * Data files are JSONP (a script calling SimpleAcceptPage), so that index page opened from the file system can load them
+ * on demand. Index page shows one page at a time, with paging and failures only filter.
+ * Page starting within a group of rows repeats header of the group. Only one page is kept in memory while writing.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ *
+ */
+class PagedHtmlWriter extends SimpleAcceptWriter {
+
+	private static final String ROWS = "rows";
+	private static final String FAILURES = "failures";
+
+	private final File pagesDir;
+	private final Pages rows;
+	private final Pages failures;
+
+	public PagedHtmlWriter(final File testResultFile, final int pageRows) throws IOException {
+		super(testResultFile);
+		final String name = testResultFile.getName();
+		this.pagesDir = new File(testResultFile.getParentFile(), name.substring(0, name.lastIndexOf('.')) + "_pages");
+		if (!pagesDir.isDirectory() && !pagesDir.mkdir())
+			throw new IOException("Cannot create directory " + pagesDir);
+		this.rows = new Pages(ROWS, pageRows);
+		this.failures = new Pages(FAILURES, pageRows);
+	}
+
+	@Override
+	protected void write(final String line) throws IOException {
+		write(line, null);
+	}
+
+	@Override
+	protected void write(final String line, final String type) throws IOException {
+		write(line, type, null);
+	}
+
+	@Override
+	protected void write(final String line, final String type, final String comment) throws IOException {
+		final boolean isEmptyLine = line == null || line.trim().isEmpty();
+		/* Empty line is rendered only for its comment, e.g. error of the file. */
+		if (isEmptyLine && (comment == null || comment.trim().isEmpty()))
+			return;
+		final StringBuilder sb = new StringBuilder();
+		sb.append('[').append(SimpleAcceptUtility.toJsonString(type)).append(',').append(SimpleAcceptUtility.toJsonString(comment));
+		for (String token : isEmptyLine ? new String[0] : line.split(","))
+			sb.append(',').append(SimpleAcceptUtility.toJsonString(token));
+		final String record = sb.append(']').toString();
+
+		if (LINE_TYPE_DATA_HEADER.equals(type)) {
+			rows.setHeader(record);
+			failures.setHeader(record);
+		} else if (LINE_TYPE_FILE_HEADER.equals(type)) {
+			/* Few lines (e.g. TestClass), kept with failures for their context. */
+			rows.add(record);
+			failures.add(record);
+		} else {
+			rows.add(record);
+			if (LINE_TYPE_FAIILED.equals(type) || LINE_TYPE_ERROR.equals(type))
+				failures.add(record);
+		}
+	}
+
+	/**
+	 * Writes last pages and the index page.
+	 * 
+	 * @see framework.simple.accept.SimpleAcceptWriter#endDocument()
+	 */
+	@Override
+	protected void endDocument() throws IOException {
+		rows.flush();
+		failures.flush();
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<html>");
+		sb.append("<head>");
+		sb.append("<style>");
+		sb.append("table {border-collapse: collapse;}");
+		sb.append("table, th, td {border: 1px solid black;}");
+		sb.append("tr {color: green; font-family: Arial; font-size: 11px;}");
+		sb.append("tr." + LINE_TYPE_FILE_HEADER + " {color: black; font-weight: bold;}");
+		sb.append("tr." + LINE_TYPE_DATA_HEADER + " {color: black; font-weight: bold;}");
+		sb.append("tr." + LINE_TYPE_ERROR + " {color: red;}");
+		sb.append("tr." + LINE_TYPE_FAIILED + " {color: red;}");
+		sb.append("</style>");
+		sb.append("<script>");
+		sb.append("var dir = " + SimpleAcceptUtility.toJsonString(pagesDir.getName()) + ";");
+		sb.append("var counts = {" + ROWS + ": " + rows.count + ", " + FAILURES + ": " + failures.count + "};");
+		sb.append("var kind = '" + ROWS + "', page = 1;");
+		sb.append("function show(newKind, newPage) {");
+		sb.append(" kind = newKind; page = Math.max(1, Math.min(newPage, counts[kind]));");
+		sb.append(" document.getElementById('page').textContent = counts[kind] == 0 ? 'No rows' : 'Page ' + page + ' of ' + counts[kind];");
+		sb.append(" document.getElementById('rows').innerHTML = '';");
+		sb.append(" if (counts[kind] == 0) return;");
+		sb.append(" var script = document.createElement('script');");
+		sb.append(" script.src = dir + '/' + kind + '-' + page + '.js';");
+		sb.append(" document.body.appendChild(script);");
+		sb.append("}");
+		sb.append("function cell(row, text) { var td = row.insertCell(-1); td.textContent = text; return td; }");
+		sb.append("function SimpleAcceptPage(records) {");
+		sb.append(" var table = document.createElement('table'), columns = 1;");
+		sb.append(" document.getElementById('rows').appendChild(table);");
+		sb.append(" for (var i = 0; i < records.length; i++) {");
+		sb.append("  var row = table.insertRow(-1), record = records[i];");
+		sb.append("  row.className = record[0] == null ? 'null' : record[0];");
+		sb.append("  if (record[0] == '" + LINE_TYPE_DATA_HEADER + "') columns = record.length - 2;");
+		sb.append("  var text = record.slice(2).join(',');");
+		sb.append("  if (record[0] == '" + LINE_TYPE_ERROR + "' || record.length == 2) {");
+		sb.append("   cell(row, text && record[1] ? text + ' : ' + record[1] : text || record[1]).colSpan = columns; continue; }");
+		sb.append("  for (var j = 2; j < record.length; j++) cell(row, record[j]);");
+		sb.append(" }");
+		sb.append("}");
+		sb.append("</script>");
+		sb.append("</head>");
+		sb.append("<body onload=\"show('" + ROWS + "', 1)\">");
+		sb.append("<p><button onclick=\"show(kind, page - 1)\">Previous</button> <span id='page'></span> ");
+		sb.append("<button onclick=\"show(kind, page + 1)\">Next</button> ");
+		sb.append("<label><input type='checkbox' onclick=\"show(this.checked ? '" + FAILURES + "' : '" + ROWS + "', 1)\">Failures only</label></p>");
+		sb.append("<div id='rows'></div>");
+		sb.append("</body></html>");
+		writer.write(sb.toString());
+	}
+
+	/**
+	 * Lines written as pages of given number of rows.
+	 */
+	private class Pages {
+
+		private final String kind;
+		private final int pageRows;
+		private final StringBuilder page = new StringBuilder();
+		private int pageRowCount = 0;
+		/* Header of current group, repeated by every page starting within the group. */
+		private String header;
+		private boolean isHeaderWritten = false;
+		/* Number of pages written. */
+		private int count = 0;
+
+		private Pages(final String kind, final int pageRows) {
+			this.kind = kind;
+			this.pageRows = pageRows;
+		}
+
+		private void setHeader(final String record) {
+			header = record;
+			isHeaderWritten = false;
+		}
+
+		private void add(final String record) throws IOException {
+			if (pageRowCount >= pageRows)
+				flush();
+			if (!isHeaderWritten && header != null) {
+				append(header);
+				isHeaderWritten = true;
+			}
+			append(record);
+			pageRowCount++;
+		}
+
+		private void append(final String record) {
+			page.append((page.length() == 0) ? "SimpleAcceptPage([" : ",\n").append(record);
+		}
+
+		private void flush() throws IOException {
+			if (page.length() == 0)
+				return;
+			count++;
+			final BufferedWriter pageWriter = new BufferedWriter(new FileWriter(new File(pagesDir, kind + "-" + count + ".js")));
+			try {
+				pageWriter.write(page.toString());
+				pageWriter.write("]);");
+			} finally {
+				pageWriter.close();
+			}
+			page.setLength(0);
+			pageRowCount = 0;
+			isHeaderWritten = false;
+		}
+	}
+}
+
 /**
  * Writer implementation for simple TXT file format.
  * 
@@ -296,6 +640,10 @@ class XmlWriter extends SimpleAcceptWriter {
 	private static final String ERROR_TAG = "Error";
 	private static final String TEST_RESULT_GROUP = "TestResultGroup";
 	private static final String TEST_RESULT_TAG = "TestResult";
+	private static final String CONTENTS_TAG = "Contents";
+	private static final String FILE_TAG = "TestDataFile";
+	private static final String NAME_TAG = "Name";
+	private static final String RESULT_TAG = "Result";
 
 	private final List<String> tags;
 	private boolean isGroupOpened = false;
@@ -303,9 +651,11 @@ class XmlWriter extends SimpleAcceptWriter {
 	public XmlWriter(final File testResultFile) throws IOException {
 		super(testResultFile);
 		this.tags = new ArrayList<String>();
-		final StringBuilder sb = new StringBuilder();
-		sb.append(startTag(ROOT_TAG));
-		writer.write(sb.toString());
+	}
+
+	@Override
+	protected void startDocument() throws IOException {
+		writer.write(startTag(ROOT_TAG));
 	}
 
 	@Override
@@ -365,6 +715,7 @@ class XmlWriter extends SimpleAcceptWriter {
 		final StringBuilder sb = new StringBuilder();
 		if (!isGroupOpened)
 			sb.append(startTag(TEST_RESULT_GROUP));
+		isGroupOpened = true;
 		sb.append(startTag(TEST_RESULT_TAG));
 		sb.append(startTag(ERROR_TAG) + "[" + line + "] - [" + comment + "]" + endTag(ERROR_TAG));
 		sb.append(endTag(TEST_RESULT_TAG));
@@ -401,14 +752,40 @@ class XmlWriter extends SimpleAcceptWriter {
 	}
 
 	/**
-	 * Closes XML content and calls close() method of parent class.
+	 * Closes XML content of test result group.
 	 * 
 	 * @see framework.simple.accept.SimpleAcceptWriter#close()
 	 */
 	@Override
-	public void close() throws IOException {
-		writer.write(endTag(TEST_RESULT_GROUP));
+	protected void endSection() throws IOException {
+		if (isGroupOpened)
+			writer.write(endTag(TEST_RESULT_GROUP));
+		isGroupOpened = false;
+	}
+
+	@Override
+	protected void endDocument() throws IOException {
 		writer.write(endTag(ROOT_TAG));
-		super.close();
+	}
+
+	@Override
+	protected void writeContents(final List<String> names, final List<String> results) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(startTag(CONTENTS_TAG));
+		for (int i=0; i<names.size(); i++)
+			sb.append(startTag(FILE_TAG) + startTag(NAME_TAG) + names.get(i) + endTag(NAME_TAG)
+					+ startTag(RESULT_TAG) + results.get(i) + endTag(RESULT_TAG) + endTag(FILE_TAG));
+		sb.append(endTag(CONTENTS_TAG));
+		writer.write(sb.toString());
+	}
+
+	@Override
+	protected void writeSectionHeading(final String name) throws IOException {
+		writer.write(startTag(FILE_TAG) + startTag(NAME_TAG) + name + endTag(NAME_TAG));
+	}
+
+	@Override
+	protected void writeSectionEnd(final String name) throws IOException {
+		writer.write(endTag(FILE_TAG));
 	}
 }
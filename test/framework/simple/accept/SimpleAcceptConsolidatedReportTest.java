@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests merging of reports of test data files by SimpleAcceptConsolidatedReport.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptConsolidatedReportTest {
+	
+	public void testSectionsInOrderOfFiles() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final SimpleAcceptConsolidatedReport report = new SimpleAcceptConsolidatedReport(new SimpleAcceptConfig(new Properties()), dir,
+					Arrays.asList(new File(dir, "a.csv"), new File(dir, "b.csv"), new File(dir, "c.csv")), null);
+			/* Files complete out of order, c.csv is skipped (it has no fragment). */
+			writeFragment(report, "b.csv", "row-of-b");
+			writeFragment(report, "a.csv", "row-of-a");
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(3);
+			bean.fileResults.put("a.csv", SimpleAcceptRunResult.FILE_PASSED);
+			bean.fileResults.put("b.csv", SimpleAcceptRunResult.FILE_FAILED);
+			
+			final File file = report.finish(bean);
+			final String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			assertTrue("Contents : " + content, content.contains("a.csv : Passed") && content.contains("b.csv : Failed")
+					&& content.contains("c.csv : Skipped"));
+			assertTrue("Sections in order of files : " + content, content.indexOf("row-of-a") < content.indexOf("row-of-b"));
+			assertEquals("Each row once.", content.lastIndexOf("row-of-a"), content.indexOf("row-of-a"));
+			assertEquals("Spool directory is removed.", 1, dir.listFiles().length);
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	private static void writeFragment(final SimpleAcceptConsolidatedReport report, final String name, final String line) throws Exception {
+		final SimpleAcceptWriter writer = SimpleAcceptWriter.getFragmentInstance(report.getFragmentFile(name));
+		writer.write(line);
+		writer.close();
+	}
+}
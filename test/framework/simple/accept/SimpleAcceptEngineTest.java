@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Properties;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests whole runs of SimpleAcceptEngine, with the sample test class.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptEngineTest {
+	
+	private static final String[] PASSING_ROWS = {
+		"TestClass,testing.framework.simple.accept.TestSampleTestFile",
+		"TestParams,id,name,dateOfBirth,name?",
+		"1,Name-1,{today}-365,Name-1",
+		"2,Name-2,{today}-365,Name-2"
+	};
+	
+	public void testResumeWithRestoredDependency() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			SimpleAcceptTestSuite.write(new File(dir, "a.csv"), PASSING_ROWS);
+			final String[] dependentRows = new String[PASSING_ROWS.length + 1];
+			dependentRows[0] = PASSING_ROWS[0];
+			dependentRows[1] = "DependsOn,a.csv";
+			System.arraycopy(PASSING_ROWS, 1, dependentRows, 2, PASSING_ROWS.length - 1);
+			SimpleAcceptTestSuite.write(new File(dir, "b.csv"), dependentRows);
+			
+			/* Run stopped after a.csv, resumed run tests b.csv only. */
+			final SimpleAcceptConfig config = createConfig(dir);
+			final SimpleAcceptRunResult stopped = new SimpleAcceptEngine().run(config.with(SimpleAcceptUtility.TEST_DATA_FILES, "a.csv")
+					.with(SimpleAcceptUtility.JOURNAL, "true"));
+			assertTrue("First run has passed : " + stopped, stopped.isPassed());
+			final SimpleAcceptRunResult resumed = new SimpleAcceptEngine().run(config.with(SimpleAcceptUtility.RESUME, "latest"));
+			assertEquals("Resumed run directory.", stopped.getResultDir(), resumed.getResultDir());
+			assertEquals("Result of a.csv.", SimpleAcceptRunResult.FILE_PASSED, resumed.getFileResults().get("a.csv"));
+			assertEquals("Result of b.csv.", SimpleAcceptRunResult.FILE_PASSED, resumed.getFileResults().get("b.csv"));
+			assertTrue("Resumed run has passed : " + resumed, resumed.isPassed());
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testRunIsNotJournaledByDefault() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			SimpleAcceptTestSuite.write(new File(dir, "a.csv"), PASSING_ROWS);
+			final SimpleAcceptRunResult result = new SimpleAcceptEngine().run(createConfig(dir));
+			assertTrue("Run has passed : " + result, result.isPassed());
+			final File resultDir = result.getResultDir();
+			assertTrue("No journal.", !new File(resultDir, SimpleAcceptJournal.JOURNAL_FILE_NAME).exists());
+			assertEquals("No row outcomes.", 0, resultDir.list(new FilenameFilter() {
+				
+				@Override
+				public boolean accept(final File dir, final String name) {
+					return name.endsWith(SimpleAcceptRowOutcomes.FILE_EXT);
+				}
+			}).length);
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testFailedSetUpReleasesRun() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			SimpleAcceptTestSuite.write(new File(dir, "a.csv"), PASSING_ROWS);
+			final int threads = countRunThreads();
+			/* Invalid port fails the run after its log, workers and watchdog are created. */
+			final SimpleAcceptConfig config = createConfig(dir).with(SimpleAcceptUtility.ROW_TIMEOUT_MILLIS, "1000")
+					.with(SimpleAcceptUtility.PROGRESS_PORT, "none");
+			boolean isFailed = false;
+			try {
+				new SimpleAcceptEngine().run(config);
+			} catch (final RuntimeException e) {
+				isFailed = true;
+			}
+			assertTrue("Run has failed.", isFailed);
+			final long until = System.currentTimeMillis() + 2000;
+			while (countRunThreads() > threads && System.currentTimeMillis() < until)
+				Thread.sleep(10);
+			assertEquals("Threads of the run are stopped.", threads, countRunThreads());
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	private static int countRunThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && (thread.getName().equals("SimpleAccept-Watchdog") || thread.getName().equals("SimpleAccept-Log-Writer")))
+				count++;
+		}
+		return count;
+	}
+	
+	public void testRowFailureBudgetCancelsRun() throws Exception {
+		assertFailureBudgetCancelsRun(SimpleAcceptUtility.FAILURE_BUDGET_ROWS, "1 failed test rows");
+	}
+	
+	public void testFileFailureBudgetCancelsRun() throws Exception {
+		assertFailureBudgetCancelsRun(SimpleAcceptUtility.FAILURE_BUDGET_FILES, "1 failed test files");
+	}
+	
+	/**
+	 * Runs a failing file on two workers next to four slow files. Test class of slow files is limited to one file at a time,
+	 * so whichever order the files are in, one slow file is in flight and three are queued when the budget is exhausted.
+	 * 
+	 * @param budgetProperty
+	 * @param reason expected part of cancel reason
+	 * @throws Exception
+	 */
+	private static void assertFailureBudgetCancelsRun(final String budgetProperty, final String reason) throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			/* Rows are longer than the engine takes to interrupt in-flight files, the interrupt lands in a running row. */
+			final String[] slowRows = new String[12];
+			slowRows[0] = "TestClass," + SlowRow.class.getName();
+			slowRows[1] = "TestParams,millis,result?";
+			for (int i=2; i<slowRows.length; i++)
+				slowRows[i] = "500,done";
+			for (String name : new String[] {"a.csv", "b.csv", "c.csv", "d.csv"})
+				SimpleAcceptTestSuite.write(new File(dir, name), slowRows);
+			/* Fails once a slow file is surely in flight. */
+			SimpleAcceptTestSuite.write(new File(dir, "failing.csv"), "TestClass," + UnlimitedSlowRow.class.getName(), slowRows[1],
+					"200,done", "0,not-done");
+			
+			final long startMillis = System.currentTimeMillis();
+			final SimpleAcceptRunResult result = new SimpleAcceptEngine().run(createConfig(dir).with(budgetProperty, "1")
+					.with(SimpleAcceptUtility.CONCURRENCY_LIMIT_PREFIX + SlowRow.class.getName(), "1"));
+			final long elapsedMillis = System.currentTimeMillis() - startMillis;
+			assertTrue("Run has failed : " + result, !result.isPassed());
+			assertEquals("Result of failing file.", SimpleAcceptRunResult.FILE_FAILED, result.getFileResults().get("failing.csv"));
+			assertEquals("In-flight file is cancelled : " + result.getFileResults(), 1, result.getCancelledTestFiles().size());
+			assertEquals("Result of in-flight file.", SimpleAcceptRunResult.FILE_CANCELLED, result.getFileResults().get(result.getCancelledTestFiles().get(0)));
+			assertTrue("In-flight file is stopped at next row, not after its 5 seconds : " + elapsedMillis + " ms", elapsedMillis < 2000);
+			assertEquals("Queued files are skipped : " + result.getFileResults(), 3, result.getSkippedTests());
+			assertEquals("Only failing file has failed.", 1, result.getFailedTests());
+			assertTrue("Cancel reason : " + result.getCancelReason(), result.getCancelReason() != null && result.getCancelReason().contains(reason));
+			
+			final Properties summary = new Properties();
+			final InputStream in = new FileInputStream(new File(result.getResultDir(), SimpleAcceptEngine.SUMMARY_PROPERTIES_FILE_NAME));
+			try {
+				summary.load(in);
+			} finally {
+				in.close();
+			}
+			assertEquals("Cancel reason in summary.", result.getCancelReason(), summary.getProperty(SimpleAcceptEngine.SUMMARY_CANCEL_REASON));
+			final String readMe = new String(Files.readAllBytes(new File(result.getResultDir(), SimpleAcceptEngine.SUMMARY_FILE_NAME).toPath()),
+					StandardCharsets.UTF_8);
+			assertTrue("Partial summary : " + readMe, readMe.contains("Testing was cancelled, this is a partial result. " + result.getCancelReason()));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	private static SimpleAcceptConfig createConfig(final File dir) {
+		final Properties properties = new Properties();
+		properties.setProperty(SimpleAcceptUtility.TEST_DATA_FOLDER, dir.getAbsolutePath());
+		properties.setProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_COUNT, "2");
+		return new SimpleAcceptConfig(properties);
+	}
+	
+	/**
+	 * Test class taking given time per row.
+	 */
+	public static class SlowRow extends SimpleAcceptBase {
+		
+		int millis;
+		String result;
+		
+		@Override
+		public boolean execute() throws Exception {
+			Thread.sleep(millis);
+			result = "done";
+			return true;
+		}
+		
+		@Override
+		public SimpleDateFormat getDateFormatter() {
+			return null;
+		}
+	}
+	
+	/**
+	 * Same as SlowRow, without its concurrency limit (input fields have to be declared by the test class itself).
+	 */
+	public static class UnlimitedSlowRow extends SimpleAcceptBase {
+		
+		int millis;
+		String result;
+		
+		@Override
+		public boolean execute() throws Exception {
+			Thread.sleep(millis);
+			result = "done";
+			return true;
+		}
+		
+		@Override
+		public SimpleDateFormat getDateFormatter() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests comparison of output values with expected files / hashes by SimpleAcceptExpectedFile.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptExpectedFileTest {
+	
+	/* SHA-256 of "abc". */
+	private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+	
+	public void testIsReference() {
+		assertTrue("File reference.", SimpleAcceptExpectedFile.isReference("{file:out/a.txt}"));
+		assertTrue("Hash reference.", SimpleAcceptExpectedFile.isReference("{sha256:" + ABC_SHA256 + "}"));
+		assertTrue("Plain value.", !SimpleAcceptExpectedFile.isReference("file:a.txt"));
+		assertTrue("Not closed.", !SimpleAcceptExpectedFile.isReference("{file:a.txt"));
+	}
+	
+	public void testCompareWithFile() throws IOException {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			SimpleAcceptTestSuite.write(new File(dir, "expected.txt"), "line-1", "line-2");
+			final String expected = "{file:expected.txt}";
+			assertEquals("Same characters.", null, SimpleAcceptExpectedFile.compare(dir, expected, new StringBuilder("line-1\nline-2\n")));
+			assertEquals("Same bytes.", null, SimpleAcceptExpectedFile.compare(dir, expected, "line-1\nline-2\n".getBytes(StandardCharsets.UTF_8)));
+			assertEquals("Different character.", "Actual differs at character 5 (expected U+0031 / actual U+0039).",
+					SimpleAcceptExpectedFile.compare(dir, expected, "line-9\nline-2\n"));
+			assertEquals("Shorter characters.", "Actual ends at character 7. Expected is longer.",
+					SimpleAcceptExpectedFile.compare(dir, expected, "line-1\n"));
+			assertEquals("Longer characters.", "Actual is longer than expected 14 characters.",
+					SimpleAcceptExpectedFile.compare(dir, expected, "line-1\nline-2\nline-3\n"));
+			assertEquals("Different byte.", "Actual differs at byte 12 (expected 0x32 / actual 0x33).",
+					SimpleAcceptExpectedFile.compare(dir, expected, "line-1\nline-3\n".getBytes(StandardCharsets.UTF_8)));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testMissingFile() {
+		try {
+			SimpleAcceptExpectedFile.compare(new File("."), "{file:does-not-exist.txt}", "value");
+			throw new AssertionError("Missing expected file is reported.");
+		} catch (final IOException e) {
+			assertTrue("Message names the file : " + e.getMessage(), e.getMessage().contains("does-not-exist.txt"));
+		}
+	}
+	
+	public void testCompareWithHash() throws IOException {
+		final String expected = "{sha256:" + ABC_SHA256.toUpperCase() + "}";
+		assertEquals("Same characters.", null, SimpleAcceptExpectedFile.compare(null, expected, "abc"));
+		assertEquals("Same bytes.", null, SimpleAcceptExpectedFile.compare(null, expected, "abc".getBytes(StandardCharsets.UTF_8)));
+		final String mismatch = SimpleAcceptExpectedFile.compare(null, expected, "abd");
+		assertTrue("Actual hash is reported : " + mismatch, mismatch != null && mismatch.startsWith("Actual SHA-256 ["));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Measures reading and binding of test rows from test data file against the same from its fixture,
+ * i.e. work done by the processor per row before executing it (refer SimpleAcceptFixture).
+ * 
+ * Usage : java framework.simple.accept.SimpleAcceptFixtureBenchmark [rows (default 200000)] [rounds (default 10)]
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptFixtureBenchmark {
+	
+	private static final List<String> INPUT_PARAMS = Arrays.asList("count", "total", "ratio", "weight", "active", "boxed", "name");
+	
+	public static void main(String[] args) throws Exception {
+		final int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		final int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final String[] lines = new String[rows + 2];
+			lines[0] = SimpleAcceptFixtureTest.TEST_CLASS_LINE;
+			lines[1] = SimpleAcceptFixtureTest.PARAMS_LINE;
+			for (int i=0; i<rows; i++)
+				lines[i + 2] = i + "," + (i * 1000L) + "," + (i / 4.0) + "," + (i % 100 / 8.0f) + "," + (i % 2 == 0) + "," + (i % 7) + ",Name-" + i + ",Name-" + i;
+			final File file = SimpleAcceptTestSuite.write(new File(dir, "benchmark.csv"), lines);
+			SimpleAcceptFixture.compile(file);
+			
+			/* First rounds warm up, best of the rest is reported. */
+			long csvNanos = Long.MAX_VALUE;
+			long fixtureNanos = Long.MAX_VALUE;
+			for (int round=0; round<rounds; round++) {
+				final long csv = run(file, SimpleAcceptFixture.MODE_OFF);
+				final long fixture = run(file, SimpleAcceptFixture.MODE_USE);
+				if (round >= rounds / 2) {
+					csvNanos = Math.min(csvNanos, csv);
+					fixtureNanos = Math.min(fixtureNanos, fixture);
+				}
+			}
+			System.out.println("Rows : " + rows + ", test data file : " + file.length() / 1024 + " KB, fixture : "
+					+ SimpleAcceptFixture.getFixtureFile(file).length() / 1024 + " KB");
+			System.out.println("Test data file : " + TimeUnit.NANOSECONDS.toMillis(csvNanos) + " ms, " + csvNanos / rows + " ns per row");
+			System.out.println("Fixture        : " + TimeUnit.NANOSECONDS.toMillis(fixtureNanos) + " ms, " + fixtureNanos / rows + " ns per row");
+			System.out.println(String.format("Speed up       : %.2fx", (double) csvNanos / fixtureNanos));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	/**
+	 * Reads all rows of given file and binds their inputs, as the processor does.
+	 * 
+	 * @param file
+	 * @param mode fixture mode
+	 * @return elapsed nanoseconds
+	 * @throws Exception
+	 */
+	private static long run(final File file, final String mode) throws Exception {
+		final SimpleAcceptFixtureTest.TypedRow instance = new SimpleAcceptFixtureTest.TypedRow();
+		final long startNanos = System.nanoTime();
+		final SimpleAcceptDataReader reader = SimpleAcceptFixture.open(file, mode);
+		try {
+			reader.readLine();
+			reader.readLine();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] values = (reader.getValues() != null) ? reader.getValues() : line.split(",");
+				final SimpleAcceptFixture.Cells cells = reader.getCells();
+				for (int i=0; i<INPUT_PARAMS.size(); i++) {
+					if (cells == null || !cells.bind(i, instance))
+						SimpleAcceptUtility.setFieldValue(instance.getClass(), instance, INPUT_PARAMS.get(i), values[i]);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return System.nanoTime() - startNanos;
+	}
+}
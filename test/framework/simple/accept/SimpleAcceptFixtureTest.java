@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests compiling of test data files into fixtures, and reading / binding of rows from them.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptFixtureTest {
+	
+	static final String TEST_CLASS_LINE = "TestClass," + TypedRow.class.getName();
+	static final String PARAMS_LINE = "TestParams,count,total,ratio,weight,active,boxed,name,name?";
+	
+	public void testRowsRoundTrip() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			/* Second row has values which are not converted (x) or are not in their formatted form (1e3, 2.50, TRUE). */
+			final String[] rows = {"1,2,0.5,1.25,true,7,abc,abc", "x,3,1e3,2.50,TRUE,8,d,d"};
+			final File file = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), TEST_CLASS_LINE, "# comment", PARAMS_LINE, rows[0], rows[1]);
+			SimpleAcceptFixture.compile(file);
+			final SimpleAcceptDataReader reader = SimpleAcceptFixture.open(file, SimpleAcceptFixture.MODE_USE);
+			try {
+				assertTrue("Fixture is used.", reader instanceof SimpleAcceptFixture.Reader);
+				assertEquals("TestClass line.", TEST_CLASS_LINE, reader.readLine());
+				assertEquals("Comment.", "# comment", reader.readLine());
+				assertEquals("TestParams line.", PARAMS_LINE, reader.readLine());
+				assertTrue("TestParams line is split by the processor.", reader.getValues() == null && reader.getCells() == null);
+				
+				assertEquals("First row.", rows[0], reader.readLine());
+				assertEquals("Values of first row.", Arrays.asList(rows[0].split(",")), Arrays.asList(reader.getValues()));
+				final TypedRow first = new TypedRow();
+				for (int i=0; i<6; i++)
+					assertTrue("Bound " + i, reader.getCells().bind(i, first));
+				assertTrue("String is set from its text.", !reader.getCells().bind(6, first));
+				assertEquals("Bound values.", "1,2,0.5,1.25,true,7", first.toString());
+				
+				assertEquals("Second row.", rows[1], reader.readLine());
+				assertEquals("Values of second row.", Arrays.asList(rows[1].split(",")), Arrays.asList(reader.getValues()));
+				final TypedRow second = new TypedRow();
+				assertTrue("Invalid number is set from its text.", !reader.getCells().bind(0, second));
+				for (int i=1; i<6; i++)
+					assertTrue("Bound " + i, reader.getCells().bind(i, second));
+				assertEquals("Bound values.", "0,3,1000.0,2.5,true,8", second.toString());
+				assertTrue("Instance of another class is set from text.", !reader.getCells().bind(1, new TypedRow() {}));
+				
+				assertEquals("End of file.", null, reader.readLine());
+			} finally {
+				reader.close();
+			}
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testOutdatedFixtureIsNotUsed() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final File file = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), TEST_CLASS_LINE, PARAMS_LINE, "1,2,0.5,1.25,true,7,abc,abc");
+			SimpleAcceptFixture.compile(file);
+			SimpleAcceptTestSuite.write(file, TEST_CLASS_LINE, PARAMS_LINE, "2,2,0.5,1.25,true,7,abc,abc", "3,2,0.5,1.25,true,7,abc,abc");
+			SimpleAcceptDataReader reader = SimpleAcceptFixture.open(file, SimpleAcceptFixture.MODE_USE);
+			reader.close();
+			assertTrue("Test data file is read.", !(reader instanceof SimpleAcceptFixture.Reader));
+			
+			reader = SimpleAcceptFixture.open(file, SimpleAcceptFixture.MODE_COMPILE);
+			try {
+				assertTrue("Fixture is compiled again.", reader instanceof SimpleAcceptFixture.Reader);
+				reader.readLine();
+				reader.readLine();
+				assertEquals("Row of changed file.", "2,2,0.5,1.25,true,7,abc,abc", reader.readLine());
+			} finally {
+				reader.close();
+			}
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testRunWithFixture() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			SimpleAcceptTestSuite.write(new File(dir, "a.csv"), TEST_CLASS_LINE, PARAMS_LINE, "1,2,0.5,1.25,true,7,abc,abc",
+					"3,4,1.5,2.25,false,8,d,d");
+			final Properties properties = new Properties();
+			properties.setProperty(SimpleAcceptUtility.TEST_DATA_FOLDER, dir.getAbsolutePath());
+			properties.setProperty(SimpleAcceptUtility.CONCURRENT_PROCESSING_COUNT, "1");
+			properties.setProperty(SimpleAcceptUtility.FIXTURE, SimpleAcceptFixture.MODE_COMPILE);
+			final SimpleAcceptRunResult result = new SimpleAcceptEngine().run(new SimpleAcceptConfig(properties));
+			assertTrue("Fixture is compiled.", SimpleAcceptFixture.getFixtureFile(new File(dir, "a.csv")).isFile());
+			assertTrue("Run has passed : " + result, result.isPassed());
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	/**
+	 * Test class with a field of every converted type.
+	 */
+	public static class TypedRow extends SimpleAcceptBase {
+		
+		int count;
+		long total;
+		double ratio;
+		float weight;
+		boolean active;
+		Integer boxed;
+		String name;
+		
+		@Override
+		public boolean execute() throws Exception {
+			if (count > 0 && boxed == null)
+				throw new IllegalStateException("Not bound.");
+			return true;
+		}
+		
+		@Override
+		public SimpleDateFormat getDateFormatter() {
+			return null;
+		}
+		
+		@Override
+		public String toString() {
+			return count + "," + total + "," + ratio + "," + weight + "," + active + "," + boxed;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests expansion of generator cells by SimpleAcceptRowGenerator.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptRowGeneratorTest {
+	
+	public void testCartesianProductLastCellFastest() {
+		final SimpleAcceptRowGenerator generator = new SimpleAcceptRowGenerator("x,{range:1..2},id-{list:a|b}-z,true");
+		assertEquals("Size.", 4L, generator.size());
+		assertEquals("Rows.", Arrays.asList("x,1,id-a-z,true", "x,1,id-b-z,true", "x,2,id-a-z,true", "x,2,id-b-z,true"), toList(generator));
+	}
+	
+	public void testRangeWithStep() {
+		assertEquals("Ascending.", Arrays.asList("0", "5", "10"), toList(new SimpleAcceptRowGenerator("{range:0..10:5}")));
+		assertEquals("Descending.", Arrays.asList("3", "2", "1"), toList(new SimpleAcceptRowGenerator("{range:3..1}")));
+	}
+	
+	public void testInvalidRange() {
+		try {
+			new SimpleAcceptRowGenerator("{range:1..5:-1}");
+			throw new AssertionError("Step leading away from the end is rejected.");
+		} catch (final RuntimeException e) {
+			assertTrue("Message names the generator : " + e.getMessage(), e.getMessage().contains("{range:1..5:-1}"));
+		}
+	}
+	
+	public void testReaderExpandsTestRowsOnly() throws IOException {
+		final SimpleAcceptRowGenerator.Reader reader = new SimpleAcceptRowGenerator.Reader(new StringReader(
+				"TestParams,id,name{list:a|b}\n{range:1..2},x\n3,y\n"));
+		try {
+			final List<String> lines = new ArrayList<String>();
+			final List<Boolean> generated = new ArrayList<Boolean>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+				generated.add(reader.isGenerated());
+			}
+			assertEquals("Lines.", Arrays.asList("TestParams,id,name{list:a|b}", "1,x", "2,x", "3,y"), lines);
+			assertEquals("Generated.", Arrays.asList(false, true, true, false), generated);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	private static List<String> toList(final SimpleAcceptRowGenerator generator) {
+		final List<String> rows = new ArrayList<String>();
+		while (generator.hasNext())
+			rows.add(generator.next());
+		return rows;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests stratified sampling of test rows by SimpleAcceptSampler.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptSamplerTest {
+	
+	public void testSampleSizeOfEveryGroup() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final File file = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), "TestClass,x", "TestParams,id",
+					"{range:1..100}", "TestParams,id", "1", "2");
+			final SimpleAcceptSampler.FileSample sample = createSampler("10%").open(file, null);
+			assertEquals("Total rows.", 102L, sample.getTotalRows());
+			sample.nextGroup();
+			assertEquals("Selected of first group.", 10, select(sample, 100));
+			sample.nextGroup();
+			assertEquals("At least one row of a group.", 1, select(sample, 2));
+			assertEquals("Sampled rows.", 11L, sample.getSampledRows());
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testShardSamplesItsRowRange() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			/* Shard tests rows 40..139, i.e. 60 rows of first group and 40 of second one. */
+			final File file = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), "TestClass,x", "TestParams,id",
+					"{range:1..99}", "0", "TestParams,id", "{range:1..100}");
+			final SimpleAcceptSampler.FileSample sample = createSampler("10%").open(file, new SimpleAcceptShard.RowRange(40, 140));
+			assertEquals("Total rows of the shard.", 100L, sample.getTotalRows());
+			sample.nextGroup();
+			assertEquals("Selected of first group.", 6, select(sample, 60));
+			sample.nextGroup();
+			assertEquals("Selected of second group.", 4, select(sample, 40));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testSameSeedSelectsSameRows() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final File file = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), "TestClass,x", "TestParams,id", "{range:1..50}");
+			final SimpleAcceptSampler sampler = createSampler("5");
+			assertEquals("Selected rows.", getSelection(sampler.open(file, null), 50), getSelection(sampler.open(file, null), 50));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	private static SimpleAcceptSampler createSampler(final String sample) {
+		final Properties properties = new Properties();
+		properties.setProperty(SimpleAcceptUtility.SAMPLE, sample);
+		return SimpleAcceptSampler.create(new SimpleAcceptConfig(properties));
+	}
+	
+	private static int select(final SimpleAcceptSampler.FileSample sample, final int rows) {
+		int selected = 0;
+		for (int i=0; i<rows; i++) {
+			if (sample.select())
+				selected++;
+		}
+		return selected;
+	}
+	
+	private static String getSelection(final SimpleAcceptSampler.FileSample sample, final int rows) {
+		sample.nextGroup();
+		final StringBuilder selection = new StringBuilder();
+		for (int i=0; i<rows; i++)
+			selection.append(sample.select() ? '1' : '0');
+		return selection.toString();
+	}
+}
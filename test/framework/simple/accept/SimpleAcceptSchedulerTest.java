@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertEquals;
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests dependency ordering of test data files by SimpleAcceptScheduler.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptSchedulerTest {
+	
+	private static final String HEADER = "TestClass,testing.framework.simple.accept.TestSampleTestFile";
+	
+	private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+	
+	public void testDependentStartsAfterDependencyPassed() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(2);
+			final File a = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), HEADER);
+			final File b = SimpleAcceptTestSuite.write(new File(dir, "b.csv"), HEADER, "DependsOn,a");
+			run(bean, new File[] {b, a}, SimpleAcceptRunResult.FILE_PASSED);
+			assertEquals("Dependency is tested first.", Arrays.asList("a.csv", "b.csv"), executed);
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testDependentSkippedWhenDependencyFails() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(2);
+			final File a = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), HEADER);
+			final File b = SimpleAcceptTestSuite.write(new File(dir, "b.csv"), HEADER, "DependsOn,a.csv");
+			run(bean, new File[] {a, b}, SimpleAcceptRunResult.FILE_FAILED);
+			assertEquals("Only dependency is tested.", Arrays.asList("a.csv"), executed);
+			assertEquals("Dependent result.", SimpleAcceptRunResult.FILE_SKIPPED, bean.fileResults.get("b.csv"));
+			assertEquals("Skipped files.", 1, bean.skippedTests.get());
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testDependencyCycleFails() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(3);
+			final File a = SimpleAcceptTestSuite.write(new File(dir, "a.csv"), HEADER, "DependsOn,b.csv");
+			final File b = SimpleAcceptTestSuite.write(new File(dir, "b.csv"), HEADER, "DependsOn,a.csv");
+			final File c = SimpleAcceptTestSuite.write(new File(dir, "c.csv"), HEADER, "DependsOn,a.csv");
+			run(bean, new File[] {a, b, c}, SimpleAcceptRunResult.FILE_PASSED);
+			assertTrue("No file is tested : " + executed, executed.isEmpty());
+			assertEquals("Result of a.csv.", SimpleAcceptRunResult.FILE_FAILED, bean.fileResults.get("a.csv"));
+			assertEquals("Result of b.csv.", SimpleAcceptRunResult.FILE_FAILED, bean.fileResults.get("b.csv"));
+			assertEquals("Result of c.csv.", SimpleAcceptRunResult.FILE_SKIPPED, bean.fileResults.get("c.csv"));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testDependencyNotInRunIsNotWaitedFor() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(1);
+			final File b = SimpleAcceptTestSuite.write(new File(dir, "b.csv"), HEADER, "DependsOn,other.csv");
+			run(bean, new File[] {b}, SimpleAcceptRunResult.FILE_PASSED);
+			assertEquals("Dependent is tested.", Arrays.asList("b.csv"), executed);
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testRestoredDependencyIsSatisfied() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			/* a.csv has passed before the run was resumed, it is not submitted again. */
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(1);
+			bean.fileResults.put("a.csv", SimpleAcceptRunResult.FILE_PASSED);
+			final File b = SimpleAcceptTestSuite.write(new File(dir, "b.csv"), HEADER, "DependsOn,a.csv");
+			run(bean, new File[] {b}, SimpleAcceptRunResult.FILE_PASSED);
+			assertEquals("Dependent is tested.", Arrays.asList("b.csv"), executed);
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testRestoredFailedDependencySkipsDependent() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final SimpleAcceptResultBean bean = new SimpleAcceptResultBean(1);
+			bean.fileResults.put("a.csv", SimpleAcceptRunResult.FILE_FAILED);
+			final File b = SimpleAcceptTestSuite.write(new File(dir, "b.csv"), HEADER, "DependsOn,a.csv");
+			run(bean, new File[] {b}, SimpleAcceptRunResult.FILE_PASSED);
+			assertTrue("No file is tested : " + executed, executed.isEmpty());
+			assertEquals("Dependent result.", SimpleAcceptRunResult.FILE_SKIPPED, bean.fileResults.get("b.csv"));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	/**
+	 * Submits given files to a new scheduler and waits till all of them are finished.
+	 * Every tested file finishes with given result.
+	 */
+	private void run(final SimpleAcceptResultBean bean, final File[] files, final String result) throws Exception {
+		final ThreadPoolExecutor workerPool = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		try {
+			final SimpleAcceptScheduler scheduler = new SimpleAcceptScheduler(new SimpleAcceptConfig(new Properties()), workerPool, bean,
+					SimpleAcceptLog.getDefault());
+			for (final File file : files) {
+				scheduler.submit(file, new Runnable() {
+					@Override
+					public void run() {
+						executed.add(file.getName());
+						bean.fileResults.put(file.getName(), result);
+						bean.terminationLatch.countDown();
+					}
+				});
+			}
+			scheduler.start();
+			assertTrue("All files are finished.", bean.terminationLatch.await(10, TimeUnit.SECONDS));
+		} finally {
+			workerPool.shutdownNow();
+		}
+	}
+}
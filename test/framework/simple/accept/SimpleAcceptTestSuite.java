@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Runs focused tests of the framework itself (refer ant test), without any test library.
+ * Every public no-argument method named test* of listed classes is a test, run on a new instance of its class.
+ * Test fails by throwing, e.g. by one of the assertions below.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public final class SimpleAcceptTestSuite {
+	
+	private static final Class<?>[] TEST_CLASSES = {
+		SimpleAcceptSchedulerTest.class,
+		SimpleAcceptEngineTest.class,
+		SimpleAcceptWatchdogTest.class,
+		SimpleAcceptRowGeneratorTest.class,
+		SimpleAcceptExpectedFileTest.class,
+		SimpleAcceptSamplerTest.class,
+		SimpleAcceptWriterTest.class,
+		SimpleAcceptConsolidatedReportTest.class,
+		SimpleAcceptFixtureTest.class
+	};
+	
+	private SimpleAcceptTestSuite() {
+	}
+	
+	/**
+	 * @param args not used
+	 * @throws Exception
+	 */
+	public static void main(final String[] args) throws Exception {
+		int run = 0;
+		final List<String> failures = new ArrayList<String>();
+		for (Class<?> testClass : TEST_CLASSES) {
+			final Method[] methods = testClass.getDeclaredMethods();
+			/* Declaration order is not known by reflection, tests are run by name. */
+			Arrays.sort(methods, new Comparator<Method>() {
+				@Override
+				public int compare(final Method m1, final Method m2) {
+					return m1.getName().compareTo(m2.getName());
+				}
+			});
+			for (Method method : methods) {
+				if (!method.getName().startsWith("test") || !Modifier.isPublic(method.getModifiers()) || method.getParameterTypes().length > 0)
+					continue;
+				final String name = testClass.getSimpleName() + "." + method.getName();
+				run++;
+				try {
+					method.invoke(testClass.getDeclaredConstructor().newInstance());
+					System.out.println("Passed : " + name);
+				} catch (final InvocationTargetException e) {
+					failures.add(name);
+					System.out.println("Failed : " + name);
+					e.getCause().printStackTrace(System.out);
+				}
+			}
+		}
+		System.out.println("Tests run : " + run + ", failed : " + failures.size() + (failures.isEmpty() ? "" : " " + failures));
+		if (!failures.isEmpty())
+			throw new Error("Tests failed.");
+	}
+	
+	static void assertTrue(final String message, final boolean condition) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+	
+	static void assertEquals(final String message, final Object expected, final Object actual) {
+		if (expected == null ? actual != null : !expected.equals(actual))
+			throw new AssertionError(message + " Expected [" + expected + "], actual [" + actual + "].");
+	}
+	
+	/**
+	 * @return new empty directory, to be deleted by the test (refer delete())
+	 * @throws IOException
+	 */
+	static File createTempDir() throws IOException {
+		return Files.createTempDirectory("simpleaccept-test").toFile();
+	}
+	
+	/**
+	 * Writes given lines into given file (UTF-8), e.g. a test data file.
+	 * 
+	 * @param file
+	 * @param lines
+	 * @return file
+	 * @throws IOException
+	 */
+	static File write(final File file, final String... lines) throws IOException {
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+		try {
+			for (String line : lines)
+				writer.write(line + "\n");
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+	
+	/**
+	 * Deletes given file or directory with its content.
+	 * 
+	 * @param file
+	 */
+	static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children)
+				delete(child);
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests enforcing of deadlines by SimpleAcceptWatchdog.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptWatchdogTest {
+	
+	public void testExpiredDeadlineInterruptsWorker() {
+		final SimpleAcceptWatchdog watchdog = new SimpleAcceptWatchdog(null);
+		try {
+			final SimpleAcceptWatchdog.Deadline deadline = watchdog.start("expiring", 20, null);
+			boolean isInterrupted = false;
+			try {
+				Thread.sleep(5000);
+			} catch (final InterruptedException e) {
+				isInterrupted = true;
+			}
+			assertTrue("Stopped by the watchdog.", deadline.stop());
+			assertTrue("Worker is interrupted.", isInterrupted);
+			assertTrue("Deadline is expired.", deadline.isExpired());
+			assertTrue("No interrupt is left over.", !Thread.currentThread().isInterrupted());
+		} finally {
+			watchdog.shutdown();
+		}
+	}
+	
+	public void testStoppedDeadlineLeavesNoInterrupt() {
+		final SimpleAcceptWatchdog watchdog = new SimpleAcceptWatchdog(null);
+		final Random random = new Random(1);
+		try {
+			/* Deadlines are stopped around their expiry, while the watchdog may be checking them. */
+			for (int i=0; i<50; i++) {
+				final SimpleAcceptWatchdog.Deadline deadline = watchdog.start("racing " + i, 1, null);
+				final long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(random.nextInt(10000));
+				while (System.nanoTime() < until && !Thread.currentThread().isInterrupted()) {
+					/* Busy, like a row being executed. */
+				}
+				deadline.stop();
+				try {
+					/* Longer than check interval of the watchdog. */
+					Thread.sleep(60);
+				} catch (final InterruptedException e) {
+					throw new AssertionError("Worker is interrupted after stopping deadline " + i + ".");
+				}
+			}
+		} finally {
+			watchdog.shutdown();
+		}
+	}
+	
+	public void testDeadlineWithoutTimeoutNeverExpires() throws InterruptedException {
+		final SimpleAcceptWatchdog watchdog = new SimpleAcceptWatchdog(null);
+		try {
+			final SimpleAcceptWatchdog.Deadline deadline = watchdog.start("tracked", 0, null);
+			Thread.sleep(120);
+			assertTrue("Stopped by the worker.", deadline.stop());
+			assertTrue("Deadline is not expired.", !deadline.isExpired());
+		} finally {
+			watchdog.shutdown();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Kashyap Deshpande.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package framework.simple.accept;
+
+import static framework.simple.accept.SimpleAcceptTestSuite.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Copyright 2016, Kashyap Deshpande.
+ * 
+ * Tests report writers.
+ * 
+ * @author kashyaprdeshpande@gmail.com
+ * 
+ */
+public class SimpleAcceptWriterTest {
+	
+	public void testPagedHtmlKeepsErrorOfEmptyLine() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final Properties properties = new Properties();
+			properties.setProperty(SimpleAcceptUtility.REPORT_HTML_PAGE_ROWS, "10");
+			final SimpleAcceptWriter writer = SimpleAcceptWriter.getInstace(new File(dir, "a_Report.html"), new SimpleAcceptConfig(properties));
+			writer.write("id,name?", SimpleAcceptWriter.LINE_TYPE_DATA_HEADER);
+			writer.write("1,x");
+			writer.write("", SimpleAcceptWriter.LINE_TYPE_ERROR, "Exception occurred while reading file.");
+			writer.write("");
+			writer.close();
+			
+			final String rows = read(new File(dir, "a_Report_pages/rows-1.js"));
+			final String failures = read(new File(dir, "a_Report_pages/failures-1.js"));
+			assertTrue("Error is in rows : " + rows, rows.contains("[\"ERROR\",\"Exception occurred while reading file.\"]"));
+			assertTrue("Error is in failures : " + failures, failures.contains("Exception occurred while reading file."));
+			assertTrue("Empty line is not a row : " + rows, !rows.contains("[null,null]"));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	public void testHtmlClosesTableOfErrorOnlyReport() throws Exception {
+		final File dir = SimpleAcceptTestSuite.createTempDir();
+		try {
+			final File file = new File(dir, "a_Report.html");
+			final SimpleAcceptWriter writer = SimpleAcceptWriter.getInstace(file, new SimpleAcceptConfig(new Properties()));
+			writer.write("TestClass,a.b.Missing", SimpleAcceptWriter.LINE_TYPE_ERROR, "Invalid test class.");
+			writer.close();
+			
+			final String content = read(file);
+			assertTrue("Error is reported : " + content, content.contains("Invalid test class."));
+			assertTrue("Table is closed : " + content, content.endsWith("</tr></table></body></html>"));
+		} finally {
+			SimpleAcceptTestSuite.delete(dir);
+		}
+	}
+	
+	private static String read(final File file) throws Exception {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}